@@ -0,0 +1,72 @@
+package main.java;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ConsistentHash.get: ring lookups by replica count and node count, from one thread and
+ * from several threads sharing the ring.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConsistentHashBenchmark {
+
+    @Param({"10", "100", "500"})
+    int replicas;
+
+    @Param({"10", "100"})
+    int nodes;
+
+    @Param({"murmur3", "xxhash64"})
+    String hash;
+
+    private ConsistentHash<String> ring;
+    private String[] keys;
+
+    @Setup
+    public void setup() {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < nodes; i++) {
+            names.add("node-" + i);
+        }
+        ConsistentHash.HashFunction function = hash.equals("murmur3")
+                ? new ConsistentHash.Murmur3HashFunction()
+                : new ConsistentHash.XxHash64HashFunction();
+        ring = new ConsistentHash<>(function, replicas, names);
+        keys = new String[4096];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = "user:" + i * 7919;
+        }
+    }
+
+    /**
+     * Per-thread cursor over the keys.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Benchmark
+    public String get(Cursor cursor) {
+        return ring.get(keys[cursor.next++ & 4095]);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String getContended(Cursor cursor) {
+        return ring.get(keys[cursor.next++ & 4095]);
+    }
+
+    @Benchmark
+    public String getLong(Cursor cursor) {
+        return ring.get((long) cursor.next++);
+    }
+}
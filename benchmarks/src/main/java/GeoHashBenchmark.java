@@ -0,0 +1,54 @@
+package main.java;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GeoHash encoding: single coordinates to strings, and columnar batches to packed longs.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GeoHashBenchmark {
+
+    @Param({"5", "9", "12"})
+    int precision;
+
+    // Coordinates cycled through (and batch size for encodeBatch)
+    @Param({"1024", "65536"})
+    int points;
+
+    private double[] latitudes;
+    private double[] longitudes;
+    private long[] packed;
+    private int next;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(25);
+        latitudes = new double[points];
+        longitudes = new double[points];
+        packed = new long[points];
+        for (int i = 0; i < points; i++) {
+            latitudes[i] = random.nextDouble() * 180 - 90;
+            longitudes[i] = random.nextDouble() * 360 - 180;
+        }
+    }
+
+    @Benchmark
+    public String encode() {
+        int i = next++ & (points - 1);
+        return GeoHash.encode(latitudes[i], longitudes[i], precision);
+    }
+
+    @Benchmark
+    public long[] encodeBatch() {
+        GeoHash.encode(latitudes, longitudes, precision, packed);
+        return packed;
+    }
+}
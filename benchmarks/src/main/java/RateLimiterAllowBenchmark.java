@@ -0,0 +1,43 @@
+package main.java;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * allowRequest on every {@link RateLimiter}, uncontended and shared by several threads.
+ * The rate is high enough that most calls are admitted, so the measured path includes
+ * the state update, not just the rejection.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RateLimiterAllowBenchmark {
+
+    @Param({"token-bucket", "leaky-bucket", "atomic-token-bucket", "atomic-leaky-bucket", "gcra", "sliding-window"})
+    String algorithm;
+
+    @Param({"1000", "1000000"})
+    int ratePerSecond;
+
+    private RateLimiter limiter;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        limiter = RateLimiter.of(algorithm, ratePerSecond, ratePerSecond);
+    }
+
+    @Benchmark
+    public boolean allowRequest() {
+        return limiter.allowRequest();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean allowRequestContended() {
+        return limiter.allowRequest();
+    }
+}
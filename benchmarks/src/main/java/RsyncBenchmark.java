@@ -0,0 +1,70 @@
+package main.java;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Signature computation: Rsync.computeChecksums (fixed 1 KB blocks, MD5 hex) against
+ * BlockSignature by block size and strong hash. Throughput is in files per second; divide
+ * into the file size for MB/s.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RsyncBenchmark {
+
+    @Param({"1", "16"})
+    int fileMb;
+
+    private Path file;
+
+    @Setup
+    public void setup() throws IOException {
+        file = Files.createTempFile("rsync-bench", ".bin");
+        byte[] chunk = new byte[1 << 20];
+        Random random = new Random(25);
+        try (OutputStream out = Files.newOutputStream(file)) {
+            for (int i = 0; i < fileMb; i++) {
+                random.nextBytes(chunk);
+                out.write(chunk);
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * Parameters only used by the BlockSignature benchmark.
+     */
+    @State(Scope.Benchmark)
+    public static class SignatureParams {
+        @Param({"1024", "8192"})
+        int blockSize;
+
+        @Param({"MD5", "SHA_256", "MURMUR3_128"})
+        BlockSignature.StrongHash strongHash;
+    }
+
+    @Benchmark
+    public List<?> computeChecksums() throws Exception {
+        return Rsync.computeChecksums(file.toFile());
+    }
+
+    @Benchmark
+    public BlockSignature blockSignature(SignatureParams params) throws IOException {
+        return BlockSignature.compute(file, params.blockSize, params.strongHash);
+    }
+}
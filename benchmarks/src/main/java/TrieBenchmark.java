@@ -0,0 +1,68 @@
+package main.java;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Trie.search for present and absent words, against CompactTrie on the same dictionary.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@State(Scope.Benchmark)
+public class TrieBenchmark {
+
+    // Dictionary size (Trie uses about 2 KB per word, so keep this modest)
+    @Param({"10000", "100000"})
+    int words;
+
+    private Trie trie;
+    private CompactTrie compact;
+    private String[] present;
+    private String[] absent;
+
+    @Setup
+    public void setup() {
+        String[] names = CompactTrie.productNames(words, 25);
+        trie = new Trie();
+        compact = new CompactTrie(words * 3 / 2);
+        for (String name : names) {
+            trie.insert(name);
+            compact.insert(name);
+        }
+        Random random = new Random(25);
+        present = new String[1024];
+        absent = new String[1024];
+        for (int i = 0; i < present.length; i++) {
+            present[i] = names[random.nextInt(names.length)];
+            absent[i] = present[i] + "#";
+        }
+    }
+
+    /**
+     * Per-thread cursor over the queries.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Benchmark
+    public boolean searchHit(Cursor cursor) {
+        return trie.search(present[cursor.next++ & 1023]);
+    }
+
+    @Benchmark
+    public boolean searchMiss(Cursor cursor) {
+        return trie.search(absent[cursor.next++ & 1023]);
+    }
+
+    @Benchmark
+    public boolean compactSearchHit(Cursor cursor) {
+        return compact.search(present[cursor.next++ & 1023]);
+    }
+}
@@ -0,0 +1,79 @@
+package main.java;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free leaky bucket (meter).
+ * The whole bucket state is one long in an AtomicLong: the time (in nanoseconds) at which the
+ * bucket will have drained completely. The fill level is implied by it,
+ * fill(now) = max(0, drainedAt - now) / nanosPerLeak, so accepting a request is a single CAS
+ * that pushes drainedAt one leak interval further out. No locks and no floating point.
+ *
+ * Leak rates that do not divide one second evenly are rounded to the nearest nanosecond per request.
+ */
+public class AtomicLeakyBucket implements RateLimiter {
+
+    private final int capacity;          // Max bucket size
+    private final long nanosPerLeak;     // Time for one request to leak out
+    private final long fullWindowNanos;  // Time to drain a full bucket: capacity * nanosPerLeak
+    private final AtomicLong drainedAt;  // Time at which the bucket will be empty
+
+    /**
+     * Initialize the leaky bucket (starts empty).
+     *
+     * @param capacity          Max bucket size
+     * @param leakRatePerSecond Leak rate (requests per second)
+     */
+    public AtomicLeakyBucket(int capacity, int leakRatePerSecond) {
+        if (capacity <= 0 || leakRatePerSecond <= 0) {
+            throw new IllegalArgumentException("Capacity and leak rate must be positive");
+        }
+        this.capacity = capacity;
+        this.nanosPerLeak = Math.max(1, Math.round(1_000_000_000.0 / leakRatePerSecond));
+        this.fullWindowNanos = capacity * nanosPerLeak;
+        this.drainedAt = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * Tries to allow a request into the bucket.
+     * @return true if request is accepted, false if rejected (bucket overflowed)
+     */
+    @Override
+    public boolean allowRequest() {
+        while (true) {
+            long current = drainedAt.get();
+            long now = System.nanoTime();
+
+            // An already drained bucket starts filling from now
+            long start = Math.max(current, now);
+            if (start - now >= fullWindowNanos) {
+                return false; // Bucket overflow, reject request
+            }
+            if (drainedAt.compareAndSet(current, start + nanosPerLeak)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @return Current water level, rounded up to whole requests
+     */
+    public int currentFill() {
+        long pending = drainedAt.get() - System.nanoTime();
+        return pending <= 0 ? 0 : (int) Math.min(capacity, (pending + nanosPerLeak - 1) / nanosPerLeak);
+    }
+
+    /**
+     * Test usage of the lock-free leaky bucket.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        AtomicLeakyBucket bucket = new AtomicLeakyBucket(10, 2); // capacity = 10, leak rate = 2 req/sec
+
+        for (int i = 1; i <= 20; i++) {
+            boolean allowed = bucket.allowRequest();
+            System.out.printf("Request %02d: %s%n", i, allowed ? "ACCEPTED" : "REJECTED");
+
+            Thread.sleep(200); // simulate 5 requests/sec (faster than leak rate)
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package main.java;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket.
+ * The whole bucket state is one long in an AtomicLong: the virtual time (in nanoseconds) at
+ * which the bucket was last empty. The token count is implied by it,
+ * tokens(now) = min(capacity, (now - emptyAt) / nanosPerToken), so taking a token is a single
+ * CAS that moves emptyAt forward by one token's worth of time. No locks and no floating point.
+ *
+ * Refill rates that do not divide one second evenly are rounded to the nearest nanosecond per token.
+ */
+public class AtomicTokenBucket implements RateLimiter {
+
+    private final int capacity;          // Max tokens bucket can hold
+    private final long nanosPerToken;    // Refill interval of a single token
+    private final long fullWindowNanos;  // Time to refill an empty bucket: capacity * nanosPerToken
+    private final AtomicLong emptyAt;    // Virtual time at which the bucket held zero tokens
+
+    /**
+     * Initialize the token bucket (starts full).
+     *
+     * @param capacity            Maximum number of tokens
+     * @param refillRatePerSecond Tokens added per second
+     */
+    public AtomicTokenBucket(int capacity, int refillRatePerSecond) {
+        if (capacity <= 0 || refillRatePerSecond <= 0) {
+            throw new IllegalArgumentException("Capacity and refill rate must be positive");
+        }
+        this.capacity = capacity;
+        this.nanosPerToken = Math.max(1, Math.round(1_000_000_000.0 / refillRatePerSecond));
+        this.fullWindowNanos = capacity * nanosPerToken;
+        this.emptyAt = new AtomicLong(System.nanoTime() - fullWindowNanos);
+    }
+
+    /**
+     * Attempts to consume 1 token.
+     *
+     * @return true if request is allowed, false if rate limited
+     */
+    @Override
+    public boolean allowRequest() {
+        while (true) {
+            long current = emptyAt.get();
+            long now = System.nanoTime();
+
+            // Tokens beyond capacity are not kept: clamp emptyAt to at most one full window ago
+            long next = Math.max(current, now - fullWindowNanos) + nanosPerToken;
+            if (next - now > 0) {
+                return false; // Less than one whole token available
+            }
+            if (emptyAt.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @return Whole tokens currently available
+     */
+    public int availableTokens() {
+        long elapsed = System.nanoTime() - emptyAt.get();
+        return (int) Math.min(capacity, Math.max(0, elapsed / nanosPerToken));
+    }
+
+    /**
+     * Test usage of AtomicTokenBucket.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        AtomicTokenBucket bucket = new AtomicTokenBucket(5, 2); // capacity 5 tokens, 2 tokens/sec
+
+        for (int i = 1; i <= 15; i++) {
+            boolean allowed = bucket.allowRequest();
+            System.out.printf("Request %02d: %s%n", i, allowed ? "ACCEPTED" : "REJECTED");
+
+            Thread.sleep(300); // 3.3 requests/sec > 2 token/sec, will throttle
+        }
+    }
+}
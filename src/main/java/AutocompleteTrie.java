@@ -0,0 +1,276 @@
+package main.java;
+
+import java.util.*;
+
+/**
+ * Weighted typeahead trie: terms are inserted with a score and {@link #topK} returns the best
+ * completions of a prefix in time proportional to the prefix length plus k.
+ *
+ * Every node caches the ids of the best maxK terms in its subtree, sorted by score (ties by
+ * term). A query walks to the prefix node and copies the head of its cache; no subtree walk.
+ * Score changes are applied bottom-up along the term's path: a node whose cache the term
+ * enters or moves within is adjusted in place, and only a node losing the term from a full
+ * cache is rebuilt, by merging its children's caches.
+ */
+public class AutocompleteTrie {
+
+    private static final int[] NO_IDS = new int[0];
+
+    /**
+     * Node with sorted child characters and the cached best terms of its subtree.
+     */
+    private static final class Node {
+        char[] keys = new char[0];
+        Node[] children = new Node[0];
+        int termId = -1;       // Term ending here, or -1
+        int[] top = NO_IDS;    // Best term ids of the subtree, best first
+
+        Node child(char ch) {
+            int i = Arrays.binarySearch(keys, ch);
+            return i >= 0 ? children[i] : null;
+        }
+
+        Node childOrCreate(char ch) {
+            int i = Arrays.binarySearch(keys, ch);
+            if (i >= 0) {
+                return children[i];
+            }
+            int at = -i - 1;
+            Node node = new Node();
+            keys = insertAt(keys, at, ch);
+            Node[] grown = new Node[children.length + 1];
+            System.arraycopy(children, 0, grown, 0, at);
+            grown[at] = node;
+            System.arraycopy(children, at, grown, at + 1, children.length - at);
+            children = grown;
+            return node;
+        }
+
+        private static char[] insertAt(char[] array, int at, char value) {
+            char[] grown = new char[array.length + 1];
+            System.arraycopy(array, 0, grown, 0, at);
+            grown[at] = value;
+            System.arraycopy(array, at, grown, at + 1, array.length - at);
+            return grown;
+        }
+    }
+
+    private final int maxK;                    // Completions cached per node
+    private final Node root = new Node();
+    private final List<String> terms = new ArrayList<>();
+    private long[] scores = new long[16];
+
+    /**
+     * Initializes an empty trie.
+     *
+     * @param maxK Largest k that {@link #topK} can answer
+     */
+    public AutocompleteTrie(int maxK) {
+        if (maxK <= 0) {
+            throw new IllegalArgumentException("maxK must be positive");
+        }
+        this.maxK = maxK;
+    }
+
+    /**
+     * Inserts a term, or changes its score if it is already present.
+     *
+     * @param term  The term to insert
+     * @param score Its weight (higher ranks first)
+     */
+    public void insert(String term, long score) {
+        // Walk down, remembering the path for the bottom-up cache update
+        Node[] path = new Node[term.length() + 1];
+        path[0] = root;
+        Node node = root;
+        for (int i = 0; i < term.length(); i++) {
+            node = node.childOrCreate(term.charAt(i));
+            path[i + 1] = node;
+        }
+
+        int id = node.termId;
+        boolean decreased = false;
+        if (id < 0) {
+            id = terms.size();
+            terms.add(term);
+            if (id == scores.length) {
+                scores = Arrays.copyOf(scores, id * 2);
+            }
+            node.termId = id;
+        } else {
+            decreased = score < scores[id];
+        }
+        scores[id] = score;
+
+        for (int depth = path.length - 1; depth >= 0; depth--) {
+            update(path[depth], id, decreased);
+        }
+    }
+
+    /**
+     * Repositions a term whose score changed in one node's cache.
+     */
+    private void update(Node node, int id, boolean decreased) {
+        int[] top = node.top;
+        int at = indexOf(top, id);
+
+        if (at >= 0 && decreased && top.length == maxK) {
+            // The term may fall out, and a term not cached here may overtake it
+            node.top = rebuild(node);
+            return;
+        }
+
+        if (at < 0) {
+            if (top.length == maxK && !better(id, top[maxK - 1])) {
+                return; // Does not make this node's cut
+            }
+            top = Arrays.copyOf(top, Math.min(maxK, top.length + 1));
+            at = top.length - 1;
+        }
+
+        // Bubble the term to its sorted position
+        top[at] = id;
+        while (at > 0 && better(id, top[at - 1])) {
+            top[at] = top[at - 1];
+            top[--at] = id;
+        }
+        while (at < top.length - 1 && better(top[at + 1], id)) {
+            top[at] = top[at + 1];
+            top[++at] = id;
+        }
+        node.top = top;
+    }
+
+    /**
+     * Recomputes a node's cache from its own term and its children's (already correct) caches.
+     */
+    private int[] rebuild(Node node) {
+        PriorityQueue<Integer> best = new PriorityQueue<>((a, b) -> better(a, b) ? 1 : -1); // Worst first
+        if (node.termId >= 0) {
+            best.add(node.termId);
+        }
+        for (Node child : node.children) {
+            for (int id : child.top) {
+                if (best.size() < maxK) {
+                    best.add(id);
+                } else if (better(id, best.peek())) {
+                    best.poll();
+                    best.add(id);
+                } else {
+                    break; // Child caches are sorted: the rest are worse
+                }
+            }
+        }
+        int[] top = new int[best.size()];
+        for (int i = top.length - 1; i >= 0; i--) {
+            top[i] = best.poll();
+        }
+        return top;
+    }
+
+    /**
+     * Returns the best completions of a prefix.
+     *
+     * @param prefix The typed prefix
+     * @param k      Number of completions wanted (at most maxK)
+     * @return Up to k terms starting with the prefix, best first
+     */
+    public List<String> topK(String prefix, int k) {
+        if (k > maxK) {
+            throw new IllegalArgumentException("k exceeds the cached maximum of " + maxK);
+        }
+        Node node = root;
+        for (int i = 0; i < prefix.length() && node != null; i++) {
+            node = node.child(prefix.charAt(i));
+        }
+        if (node == null) {
+            return Collections.emptyList();
+        }
+
+        int count = Math.min(k, node.top.length);
+        List<String> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(terms.get(node.top[i]));
+        }
+        return result;
+    }
+
+    /**
+     * @return Score of a term, or -1 if it was never inserted
+     */
+    public long score(String term) {
+        Node node = root;
+        for (int i = 0; i < term.length() && node != null; i++) {
+            node = node.child(term.charAt(i));
+        }
+        return node == null || node.termId < 0 ? -1 : scores[node.termId];
+    }
+
+    /**
+     * @return Number of distinct terms
+     */
+    public int size() {
+        return terms.size();
+    }
+
+    private boolean better(int a, int b) {
+        return scores[a] != scores[b] ? scores[a] > scores[b] : terms.get(a).compareTo(terms.get(b)) < 0;
+    }
+
+    private static int indexOf(int[] ids, int id) {
+        for (int i = 0; i < ids.length; i++) {
+            if (ids[i] == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Example usage and query latency over a generated product catalogue.
+     */
+    public static void main(String[] args) {
+        AutocompleteTrie trie = new AutocompleteTrie(10);
+        trie.insert("hello", 50);
+        trie.insert("helium", 80);
+        trie.insert("help", 120);
+        trie.insert("heat", 30);
+        System.out.println("topK('he', 3): " + trie.topK("he", 3));   // [help, helium, hello]
+        trie.insert("help", 10);
+        System.out.println("after help -> 10: " + trie.topK("hel", 3)); // [helium, hello, help]
+
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 300_000;
+        String[] names = CompactTrie.productNames(count, 16);
+        Random random = new Random(16);
+        AutocompleteTrie catalogue = new AutocompleteTrie(10);
+        long start = System.nanoTime();
+        for (String name : names) {
+            catalogue.insert(name, (long) (1_000_000 / (1 + random.nextInt(10_000)))); // Skewed popularity
+        }
+        System.out.printf("%nIndexed %,d terms in %.0f ms%n", catalogue.size(), (System.nanoTime() - start) / 1e6);
+
+        // Queries: random prefixes of 1..8 chars of existing terms, as typed keystroke by keystroke
+        int queries = 1_000_000;
+        long[] latencies = new long[queries];
+        long sink = 0;
+        for (int q = 0; q < queries; q++) {
+            String name = names[random.nextInt(count)];
+            String prefix = name.substring(0, 1 + random.nextInt(Math.min(8, name.length())));
+            long t0 = System.nanoTime();
+            sink += catalogue.topK(prefix, 10).size();
+            latencies[q] = System.nanoTime() - t0;
+        }
+        Arrays.sort(latencies);
+        System.out.printf("topK(prefix, 10): p50 %.2f us, p99 %.2f us, p99.9 %.2f us (%d results)%n",
+                latencies[queries / 2] / 1e3, latencies[queries * 99 / 100] / 1e3,
+                latencies[queries * 999 / 1000] / 1e3, sink);
+
+        // Incremental score updates, including decreases that force cache rebuilds
+        start = System.nanoTime();
+        int updates = 200_000;
+        for (int u = 0; u < updates; u++) {
+            catalogue.insert(names[random.nextInt(count)], random.nextInt(1_000_000));
+        }
+        System.out.printf("Score updates: %.2f us each%n", (System.nanoTime() - start) / 1e3 / updates);
+    }
+}
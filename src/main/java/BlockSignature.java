@@ -0,0 +1,442 @@
+package main.java;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Block signatures of a file for {@link RsyncDelta}, generated without per-block garbage.
+ *
+ * The file is memory-mapped and walked block by block. Each block's weak checksum goes into
+ * an int[] and its binary strong digest into one packed byte[], so a signature is two arrays
+ * instead of a Checksum object and a hex String per block. Digests come from one reused
+ * hasher per thread. Signatures can be saved to and loaded from a compact binary file.
+ *
+ * Signature file layout (big-endian): int magic "RSIG", int version, int blockSize,
+ * byte strongHash ordinal, long fileLength, int blockCount, blockCount weak ints,
+ * blockCount * digestLength strong bytes.
+ */
+public class BlockSignature {
+
+    private static final int MAGIC = 0x52534947; // "RSIG"
+    private static final int VERSION = 1;
+
+    // Largest region mapped at once (rounded down to whole blocks)
+    private static final long MAP_REGION = 1L << 30;
+
+    /**
+     * Strong hash used to confirm weak checksum matches.
+     */
+    public enum StrongHash {
+        MD5(16),
+        SHA_256(32),
+        MURMUR3_128(16);   // Non-cryptographic, much faster; fine when the sender is trusted
+
+        public final int digestLength;
+
+        private final ThreadLocal<MessageDigest> digests = ThreadLocal.withInitial(this::newDigest);
+        private final ThreadLocal<long[]> murmurOut = ThreadLocal.withInitial(() -> new long[2]);
+
+        StrongHash(int digestLength) {
+            this.digestLength = digestLength;
+        }
+
+        private MessageDigest newDigest() {
+            try {
+                return this == MURMUR3_128 ? null : MessageDigest.getInstance(this == MD5 ? "MD5" : "SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        /**
+         * Hashes data[offset, offset + length) into out[outOffset, outOffset + digestLength).
+         */
+        public void digest(byte[] data, int offset, int length, byte[] out, int outOffset) {
+            if (this == MURMUR3_128) {
+                long[] h = murmurOut.get();
+                Murmur3.hash128(data, offset, length, 0, h);
+                for (int i = 0; i < 8; i++) {
+                    out[outOffset + i] = (byte) (h[0] >>> (8 * i));
+                    out[outOffset + 8 + i] = (byte) (h[1] >>> (8 * i));
+                }
+                return;
+            }
+            MessageDigest digest = digests.get();
+            digest.update(data, offset, length);
+            try {
+                digest.digest(out, outOffset, digestLength);
+            } catch (java.security.DigestException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private final int blockSize;
+    private final StrongHash strongHash;
+    private final long fileLength;
+    private final int[] weak;
+    private final byte[] strong;
+
+    BlockSignature(int blockSize, StrongHash strongHash, long fileLength, int[] weak, byte[] strong) {
+        this.blockSize = blockSize;
+        this.strongHash = strongHash;
+        this.fileLength = fileLength;
+        this.weak = weak;
+        this.strong = strong;
+    }
+
+    /**
+     * Computes the signature of a file.
+     *
+     * @param file       The (old) file
+     * @param blockSize  Block size in bytes (up to 1 GB)
+     * @param strongHash Strong hash to use
+     * @return The signature
+     */
+    public static BlockSignature compute(Path file, int blockSize, StrongHash strongHash) throws IOException {
+        checkBlockSize(blockSize);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long length = channel.size();
+            BlockSignature signature = allocate(length, blockSize, strongHash);
+            signature.hashRange(channel, 0, signature.blockCount());
+            return signature;
+        }
+    }
+
+    /**
+     * Creates an empty signature for a file length, to be filled by {@link #hashRange}.
+     */
+    static BlockSignature allocate(long fileLength, int blockSize, StrongHash strongHash) {
+        long blocks = (fileLength + blockSize - 1) / blockSize;
+        if (blocks * strongHash.digestLength > Integer.MAX_VALUE - 16) {
+            throw new IllegalArgumentException("File too large for block size " + blockSize);
+        }
+        return new BlockSignature(blockSize, strongHash, fileLength,
+                new int[(int) blocks], new byte[(int) blocks * strongHash.digestLength]);
+    }
+
+    /**
+     * Hashes blocks [fromBlock, toBlock) of the file, mapping it region by region.
+     * Distinct ranges may be hashed by different threads.
+     */
+    void hashRange(FileChannel channel, int fromBlock, int toBlock) throws IOException {
+        byte[] block = new byte[blockSize];
+        long blocksPerRegion = MAP_REGION / blockSize;
+        for (long first = fromBlock; first < toBlock; first += blocksPerRegion) {
+            long last = Math.min(toBlock, first + blocksPerRegion);
+            long start = first * blockSize;
+            long end = Math.min(fileLength, last * blockSize);
+            MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+
+            for (long i = first; i < last; i++) {
+                int length = region.remaining() < blockSize ? region.remaining() : blockSize;
+                region.get(block, 0, length);
+                weak[(int) i] = Rsync.rollingChecksum(block, 0, length);
+                strongHash.digest(block, 0, length, strong, (int) i * strongHash.digestLength);
+            }
+        }
+    }
+
+    /**
+     * Signs data as it is streamed past, for callers that read the file anyway: the signature
+     * then describes exactly the bytes they read, even if the file changes meanwhile.
+     */
+    static final class Builder {
+        private final int blockSize;
+        private final StrongHash strongHash;
+        private final byte[] block;
+        private int filled;         // Bytes of the current partial block
+        private int[] weak;
+        private byte[] strong;
+        private int blocks;
+        private long length;
+
+        /**
+         * @param expectedLength Likely data length, to size the arrays (may be wrong)
+         */
+        Builder(int blockSize, StrongHash strongHash, long expectedLength) {
+            checkBlockSize(blockSize);
+            this.blockSize = blockSize;
+            this.strongHash = strongHash;
+            this.block = new byte[blockSize];
+            long expected = (Math.max(0, expectedLength) + blockSize - 1) / blockSize;
+            int capacity = (int) Math.max(1, Math.min(expected, maxBlocks()));
+            this.weak = new int[capacity];
+            this.strong = new byte[capacity * strongHash.digestLength];
+        }
+
+        void update(byte[] data, int offset, int count) {
+            length += count;
+            while (count > 0) {
+                if (filled == 0 && count >= blockSize) {
+                    // Whole blocks straight from the caller's buffer
+                    add(data, offset, blockSize);
+                    offset += blockSize;
+                    count -= blockSize;
+                    continue;
+                }
+                int n = Math.min(count, blockSize - filled);
+                System.arraycopy(data, offset, block, filled, n);
+                filled += n;
+                offset += n;
+                count -= n;
+                if (filled == blockSize) {
+                    add(block, 0, blockSize);
+                    filled = 0;
+                }
+            }
+        }
+
+        BlockSignature finish() {
+            if (filled > 0) {
+                add(block, 0, filled);
+                filled = 0;
+            }
+            return new BlockSignature(blockSize, strongHash, length,
+                    Arrays.copyOf(weak, blocks), Arrays.copyOf(strong, blocks * strongHash.digestLength));
+        }
+
+        private void add(byte[] data, int offset, int count) {
+            if (blocks == weak.length) {
+                int capacity = (int) Math.min(2L * blocks, maxBlocks());
+                if (capacity <= blocks) {
+                    throw new IllegalArgumentException("File too large for block size " + blockSize);
+                }
+                weak = Arrays.copyOf(weak, capacity);
+                strong = Arrays.copyOf(strong, capacity * strongHash.digestLength);
+            }
+            weak[blocks] = Rsync.rollingChecksum(data, offset, count);
+            strongHash.digest(data, offset, count, strong, blocks * strongHash.digestLength);
+            blocks++;
+        }
+
+        private long maxBlocks() {
+            return (Integer.MAX_VALUE - 16) / strongHash.digestLength;
+        }
+    }
+
+    /**
+     * Converts checksums computed by {@link Rsync#computeChecksums} (MD5 in hex).
+     */
+    public static BlockSignature fromChecksums(List<Rsync.Checksum> checksums, int blockSize) {
+        long length = 0;
+        for (Rsync.Checksum checksum : checksums) {
+            length += checksum.length;
+        }
+        BlockSignature signature = allocate(length, blockSize, StrongHash.MD5);
+        for (int i = 0; i < checksums.size(); i++) {
+            signature.weak[i] = checksums.get(i).weakHash;
+            String hex = checksums.get(i).strongHash;
+            for (int j = 0; j < 16; j++) {
+                signature.strong[i * 16 + j] = (byte) Integer.parseInt(hex.substring(2 * j, 2 * j + 2), 16);
+            }
+        }
+        return signature;
+    }
+
+    /**
+     * Saves the signature in the binary signature format.
+     */
+    public void write(Path file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+            writeTo(out);
+        }
+    }
+
+    /**
+     * Writes the signature format to a stream (lets other files embed signatures).
+     */
+    void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(blockSize);
+        out.writeByte(strongHash.ordinal());
+        out.writeLong(fileLength);
+        out.writeInt(weak.length);
+        ByteBuffer weakBytes = ByteBuffer.allocate(weak.length * 4);
+        weakBytes.asIntBuffer().put(weak);
+        out.write(weakBytes.array());
+        out.write(strong);
+    }
+
+    /**
+     * Loads a signature saved by {@link #write}.
+     */
+    public static BlockSignature read(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            return readFrom(in);
+        }
+    }
+
+    /**
+     * Reads a signature written by {@link #writeTo}.
+     */
+    static BlockSignature readFrom(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a signature file");
+        }
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported signature file version " + version);
+        }
+        int blockSize = in.readInt();
+        if (blockSize <= 0 || blockSize > MAP_REGION) {
+            throw new IOException("Corrupt signature file: block size " + blockSize);
+        }
+        int ordinal = in.readUnsignedByte();
+        if (ordinal >= StrongHash.values().length) {
+            throw new IOException("Corrupt signature file: unknown strong hash " + ordinal);
+        }
+        StrongHash strongHash = StrongHash.values()[ordinal];
+        long fileLength = in.readLong();
+        if (fileLength < 0 || fileLength / blockSize >= (Integer.MAX_VALUE - 16) / strongHash.digestLength) {
+            throw new IOException("Corrupt signature file: file length " + fileLength);
+        }
+        BlockSignature signature = allocate(fileLength, blockSize, strongHash);
+        if (in.readInt() != signature.weak.length) {
+            throw new IOException("Corrupt signature file: block count does not match file length");
+        }
+        byte[] weakBytes = new byte[signature.weak.length * 4];
+        in.readFully(weakBytes);
+        ByteBuffer.wrap(weakBytes).asIntBuffer().get(signature.weak);
+        in.readFully(signature.strong);
+        return signature;
+    }
+
+    private static void checkBlockSize(int blockSize) {
+        if (blockSize <= 0 || blockSize > MAP_REGION) {
+            throw new IllegalArgumentException("Block size must be between 1 byte and 1 GB");
+        }
+    }
+
+    public int blockSize() {
+        return blockSize;
+    }
+
+    public StrongHash strongHash() {
+        return strongHash;
+    }
+
+    public long fileLength() {
+        return fileLength;
+    }
+
+    public int blockCount() {
+        return weak.length;
+    }
+
+    public int weak(int block) {
+        return weak[block];
+    }
+
+    /**
+     * @return Bytes in a block (only the last block may be shorter than the block size)
+     */
+    public int blockLength(int block) {
+        return (int) Math.min(blockSize, fileLength - (long) block * blockSize);
+    }
+
+    /**
+     * @return Whether a block's strong digest equals digest[offset, offset + digestLength)
+     */
+    public boolean strongEquals(int block, byte[] digest, int offset) {
+        int base = block * strongHash.digestLength;
+        for (int i = 0; i < strongHash.digestLength; i++) {
+            if (strong[base + i] != digest[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return Whether two blocks have the same strong digest
+     */
+    public boolean strongEquals(int block, int other) {
+        return strongEquals(block, strong, other * strongHash.digestLength);
+    }
+
+    /**
+     * @return Bytes held by the signature arrays
+     */
+    public long memoryBytes() {
+        return 32 + 4L * weak.length + strong.length;
+    }
+
+    /**
+     * Bytes allocated so far by the current thread (for the demo's garbage comparison).
+     */
+    static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+
+    /**
+     * Demo: signature throughput and garbage against the stream-based Rsync.computeChecksums.
+     */
+    public static void main(String[] args) throws Exception {
+        int megabytes = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        Path file = Files.createTempFile("signature", ".bin");
+        byte[] chunk = new byte[1 << 20];
+        Random random = new Random(21);
+        try (OutputStream out = Files.newOutputStream(file)) {
+            for (int i = 0; i < megabytes; i++) {
+                random.nextBytes(chunk);
+                out.write(chunk);
+            }
+        }
+
+        System.out.printf("%d MB file%n", megabytes);
+        System.out.println("Engine                          |   MB/s | Garbage/block | Signature bytes");
+        for (int round = 0; round < 2; round++) { // First round warms up the JIT
+            long allocated = allocatedBytes(), start = System.nanoTime();
+            List<Rsync.Checksum> legacy = Rsync.computeChecksums(file.toFile());
+            report(round, "Rsync.computeChecksums (MD5)", megabytes, start, allocated, legacy.size(), -1);
+
+            for (StrongHash hash : StrongHash.values()) {
+                allocated = allocatedBytes();
+                start = System.nanoTime();
+                BlockSignature signature = compute(file, Rsync.BLOCK_SIZE, hash);
+                report(round, "BlockSignature (" + hash + ")", megabytes, start, allocated,
+                        signature.blockCount(), signature.memoryBytes());
+            }
+        }
+
+        BlockSignature signature = compute(file, Rsync.BLOCK_SIZE, StrongHash.MD5);
+        Path saved = Files.createTempFile("signature", ".rsig");
+        signature.write(saved);
+        BlockSignature loaded = read(saved);
+        boolean same = loaded.blockCount() == signature.blockCount();
+        for (int i = 0; i < signature.blockCount() && same; i++) {
+            same = loaded.weak(i) == signature.weak(i) && loaded.strongEquals(i, signature.strong, i * 16);
+        }
+        System.out.printf("Signature file: %,d bytes, round trip identical: %s%n", Files.size(saved), same);
+
+        Files.delete(saved);
+        Files.delete(file);
+    }
+
+    private static void report(int round, String name, int megabytes, long start, long allocated,
+                               int blocks, long signatureBytes) {
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long garbage = allocatedBytes() - allocated - Math.max(0, signatureBytes);
+        if (round > 0) {
+            System.out.printf("%-31s | %6.0f | %11.1f B | %s%n", name, megabytes / seconds, (double) garbage / blocks,
+                    signatureBytes < 0 ? "objects" : String.format("%,d", signatureBytes));
+        }
+    }
+}
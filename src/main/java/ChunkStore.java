@@ -0,0 +1,349 @@
+package main.java;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Content-addressed chunk store on disk, for syncing and backing up many similar files.
+ *
+ * Files are split by a {@link ContentDefinedChunker} and every chunk is stored once under its
+ * SHA-256 digest, however many files or versions contain it. A file is kept as a recipe: the
+ * list of its chunk digests. Storing a file only writes (and, over a network, would only
+ * transfer) the chunks the store has not seen yet.
+ *
+ * Layout under the root directory:
+ *   chunks/ab/abcdef...   raw chunk bytes, named by the hex digest (fanned out by first byte)
+ *   recipes/name          int magic "RCPE", int version, long fileLength, int chunkCount,
+ *                         then per chunk: int length, 32-byte digest
+ */
+public class ChunkStore {
+
+    private static final int MAGIC = 0x52435045; // "RCPE"
+    private static final int VERSION = 1;
+    private static final int DIGEST_BYTES = 32;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final Path chunks;
+    private final Path recipes;
+    private final ContentDefinedChunker chunker;
+    private final Set<String> known = new HashSet<>(); // Chunks seen by this instance
+
+    /**
+     * Result of storing a file.
+     */
+    public static class Stats {
+        public long logicalBytes;   // Bytes in the stored files
+        public long newBytes;       // Bytes of chunks the store did not have
+        public long chunks;
+        public long newChunks;
+
+        public void add(Stats other) {
+            logicalBytes += other.logicalBytes;
+            newBytes += other.newBytes;
+            chunks += other.chunks;
+            newChunks += other.newChunks;
+        }
+
+        /**
+         * @return Logical bytes per stored byte: infinite when everything was already stored,
+         *         0 when nothing was stored at all
+         */
+        public double dedupRatio() {
+            if (newBytes == 0) {
+                return logicalBytes == 0 ? 0 : Double.POSITIVE_INFINITY;
+            }
+            return (double) logicalBytes / newBytes;
+        }
+
+        @Override
+        public String toString() {
+            double ratio = dedupRatio();
+            return String.format("%,d bytes in %,d chunks, %,d new chunks (%,d bytes), dedup %s",
+                    logicalBytes, chunks, newChunks, newBytes,
+                    Double.isInfinite(ratio) ? "complete (all chunks already stored)" : String.format("%.2fx", ratio));
+        }
+    }
+
+    /**
+     * Opens (or creates) a store.
+     *
+     * @param root    Store directory
+     * @param chunker Chunking used for new files; keep it fixed for a store to deduplicate well
+     */
+    public ChunkStore(Path root, ContentDefinedChunker chunker) throws IOException {
+        this.chunks = Files.createDirectories(root.resolve("chunks"));
+        this.recipes = Files.createDirectories(root.resolve("recipes"));
+        this.chunker = chunker;
+    }
+
+    /**
+     * Stores a file's content under a name, replacing any previous recipe of that name.
+     *
+     * @param name Recipe name (no path separators)
+     * @param in   The content
+     * @return What was stored
+     */
+    public Stats store(String name, InputStream in) throws IOException {
+        Path target = recipe(name);
+        Stats stats = new Stats();
+        ByteArrayOutputStream recipe = new ByteArrayOutputStream();
+        DataOutputStream entries = new DataOutputStream(recipe);
+        byte[] digest = new byte[DIGEST_BYTES];
+
+        chunker.split(in, (data, offset, length) -> {
+            BlockSignature.StrongHash.SHA_256.digest(data, offset, length, digest, 0);
+            if (putChunk(hex(digest), data, offset, length)) {
+                stats.newChunks++;
+                stats.newBytes += length;
+            }
+            stats.chunks++;
+            stats.logicalBytes += length;
+            entries.writeInt(length);
+            entries.write(digest);
+        });
+
+        Path temp = recipes.resolve(name + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(stats.logicalBytes);
+            out.writeInt((int) stats.chunks);
+            recipe.writeTo(out);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return stats;
+    }
+
+    /**
+     * Stores a file under its file name.
+     */
+    public Stats store(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return store(file.getFileName().toString(), in);
+        }
+    }
+
+    /**
+     * Writes a chunk unless the store already has it.
+     *
+     * @return Whether the chunk was new
+     */
+    private boolean putChunk(String name, byte[] data, int offset, int length) throws IOException {
+        if (known.contains(name)) {
+            return false;
+        }
+        Path file = chunkPath(name);
+        boolean created = false;
+        if (!Files.exists(file)) {
+            // Write aside and rename, so a crash never leaves a truncated chunk under its digest
+            Path directory = Files.createDirectories(file.getParent());
+            Path temp = Files.createTempFile(directory, name, ".tmp");
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                out.write(data, offset, length);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            created = true;
+        }
+        known.add(name);
+        return created;
+    }
+
+    /**
+     * Rebuilds a stored file.
+     *
+     * @param name Recipe name
+     * @param out  Receives the file's bytes
+     */
+    public void restore(String name, OutputStream out) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(recipe(name))))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a recipe: " + name);
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported recipe version " + version);
+            }
+            in.readLong();
+            int count = in.readInt();
+            byte[] digest = new byte[DIGEST_BYTES];
+            for (int i = 0; i < count; i++) {
+                int length = in.readInt();
+                in.readFully(digest);
+                byte[] chunk = Files.readAllBytes(chunkPath(hex(digest)));
+                if (chunk.length != length) {
+                    throw new IOException("Corrupt chunk " + hex(digest));
+                }
+                out.write(chunk);
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * @return Whether a recipe of that name exists
+     */
+    public boolean contains(String name) {
+        return Files.exists(recipe(name));
+    }
+
+    private Path recipe(String name) {
+        if (name.isEmpty() || name.contains("/") || name.contains("\\") || name.startsWith(".")) {
+            throw new IllegalArgumentException("Invalid recipe name: " + name);
+        }
+        return recipes.resolve(name);
+    }
+
+    private Path chunkPath(String name) {
+        return chunks.resolve(name.substring(0, 2)).resolve(name);
+    }
+
+    static String hex(byte[] digest) {
+        char[] chars = new char[digest.length * 2];
+        for (int i = 0; i < digest.length; i++) {
+            chars[2 * i] = HEX[(digest[i] >> 4) & 0xf];
+            chars[2 * i + 1] = HEX[digest[i] & 0xf];
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Deletes a directory tree (used by the demo for its temporary stores).
+     */
+    static void deleteTree(Path root) throws IOException {
+        if (!Files.exists(root)) {
+            return;
+        }
+        try (java.util.stream.Stream<Path> paths = Files.walk(root)) {
+            List<Path> all = new ArrayList<>();
+            paths.forEach(all::add);
+            Collections.reverse(all);
+            for (Path path : all) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    /**
+     * Demo: stores several nightly generations of a synthetic backup corpus with FastCDC and
+     * with rsync's fixed {@link Rsync#BLOCK_SIZE} blocks, and compares dedup ratio and throughput.
+     */
+    public static void main(String[] args) throws IOException {
+        int files = args.length > 0 ? Integer.parseInt(args[0]) : 24;
+        int generations = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        List<List<byte[]>> corpus = backupCorpus(files, generations, new Random(23));
+
+        ContentDefinedChunker[] modes = {
+                new ContentDefinedChunker(2 << 10, 8 << 10, 64 << 10),
+                ContentDefinedChunker.fixedSize(Rsync.BLOCK_SIZE)
+        };
+        System.out.printf("Corpus: %d files x %d generations, %.1f MB%n", files, generations,
+                corpus.stream().flatMap(List::stream).mapToLong(f -> f.length).sum() / 1e6);
+        System.out.println("Mode                    | Chunk+hash MB/s | Store MB/s | Avg chunk | Stored MB | Dedup");
+
+        for (ContentDefinedChunker chunker : modes) {
+            chunkAndHash(chunker, corpus.subList(0, 1)); // Warm up
+        }
+
+        for (ContentDefinedChunker chunker : modes) {
+            // Chunking and hashing, without the store. Fixed mode's cut() reads nothing, so
+            // chunking alone would not compare: both modes are timed over the same hashing path
+            long start = System.nanoTime();
+            long bytes = chunkAndHash(chunker, corpus);
+            double chunkSeconds = (System.nanoTime() - start) / 1e9;
+
+            // Chunking, hashing and storing every generation
+            Path root = Files.createTempDirectory("chunks");
+            ChunkStore store = new ChunkStore(root, chunker);
+            Stats total = new Stats();
+            start = System.nanoTime();
+            for (int g = 0; g < corpus.size(); g++) {
+                for (int f = 0; f < corpus.get(g).size(); f++) {
+                    total.add(store.store("g" + g + "-file" + f, new ByteArrayInputStream(corpus.get(g).get(f))));
+                }
+            }
+            double storeSeconds = (System.nanoTime() - start) / 1e9;
+
+            ByteArrayOutputStream restored = new ByteArrayOutputStream();
+            store.restore("g" + (generations - 1) + "-file0", restored);
+            if (!Arrays.equals(restored.toByteArray(), corpus.get(generations - 1).get(0))) {
+                throw new IllegalStateException("Restore mismatch");
+            }
+
+            System.out.printf("%-23s | %15.0f | %10.0f | %7.0f B | %9.1f | %4.2fx%n", chunker,
+                    bytes / 1e6 / chunkSeconds, total.logicalBytes / 1e6 / storeSeconds,
+                    (double) total.logicalBytes / total.chunks, total.newBytes / 1e6, total.dedupRatio());
+            deleteTree(root);
+        }
+    }
+
+    /**
+     * Cuts every file and SHA-256 hashes every chunk, as storing would.
+     *
+     * @return Bytes processed
+     */
+    private static long chunkAndHash(ContentDefinedChunker chunker, List<List<byte[]>> corpus) {
+        byte[] digest = new byte[DIGEST_BYTES];
+        long bytes = 0;
+        for (List<byte[]> generation : corpus) {
+            for (byte[] file : generation) {
+                for (int offset = 0; offset < file.length; ) {
+                    int length = chunker.cut(file, offset, file.length - offset);
+                    BlockSignature.StrongHash.SHA_256.digest(file, offset, length, digest, 0);
+                    offset += length;
+                }
+                bytes += file.length;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Builds a corpus of generations: each night some files get small insertions, deletions
+     * and overwrites at random offsets, and some files are copies of others with a header
+     * prepended (data shared between files).
+     */
+    private static List<List<byte[]>> backupCorpus(int files, int generations, Random random) {
+        List<byte[]> current = new ArrayList<>();
+        for (int f = 0; f < files; f++) {
+            byte[] file = new byte[(1 << 20) + random.nextInt(3 << 20)];
+            random.nextBytes(file);
+            if (f % 4 == 3) {
+                // A copy of the previous file behind a short header
+                byte[] previous = current.get(f - 1);
+                file = new byte[previous.length + 100];
+                random.nextBytes(file);
+                System.arraycopy(previous, 0, file, 100, previous.length);
+            }
+            current.add(file);
+        }
+
+        List<List<byte[]>> corpus = new ArrayList<>();
+        corpus.add(current);
+        for (int g = 1; g < generations; g++) {
+            List<byte[]> next = new ArrayList<>();
+            for (byte[] file : current) {
+                next.add(random.nextInt(3) == 0 ? file : edit(file, random));
+            }
+            corpus.add(next);
+            current = next;
+        }
+        return corpus;
+    }
+
+    private static byte[] edit(byte[] file, Random random) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(file.length + 4096);
+        int position = 0;
+        for (int e = 0, edits = 1 + random.nextInt(5); e < edits; e++) {
+            int at = position + random.nextInt(Math.max(1, (file.length - position) / 2));
+            out.write(file, position, at - position);
+            position = at;
+            byte[] inserted = new byte[random.nextInt(200)];
+            random.nextBytes(inserted);
+            out.write(inserted, 0, inserted.length);
+            position = Math.min(file.length, position + random.nextInt(200)); // Deleted or overwritten
+        }
+        out.write(file, position, file.length - position);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,409 @@
+package main.java;
+
+import java.util.*;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Memory-compact trie with the same insert/search/startsWith contract as {@link Trie}.
+ *
+ * Chains of single-child nodes are collapsed into one edge labelled with a string
+ * (radix / Patricia trie), so there are at most two nodes per key instead of one per character.
+ * Nodes are not objects: a node is an index into parallel primitive arrays, edge labels are
+ * ranges of one shared char[] pool, and the children of a node form a linked list sorted by
+ * first character. A node costs about 18 bytes plus its label characters, against roughly
+ * 100 bytes per character for a HashMap-based node.
+ */
+public class CompactTrie {
+
+    private static final int ROOT = 0;
+    private static final int NONE = -1;
+
+    // Edge labels of all nodes, appended as keys are inserted
+    private char[] labels = new char[64];
+    private int labelsUsed;
+
+    // Per-node columns: label range in the pool, first label char, first child, next sibling
+    private int[] labelStart;
+    private int[] labelLength;
+    private char[] firstChar;
+    private int[] firstChild;
+    private int[] nextSibling;
+    private long[] terminal;   // Bitset: node ends a key
+
+    private int nodeCount;
+    private int size;
+
+    /**
+     * Initializes an empty trie.
+     */
+    public CompactTrie() {
+        this(16);
+    }
+
+    /**
+     * Initializes an empty trie sized for an expected number of nodes (about 1.5 per key).
+     *
+     * @param expectedNodes Initial node capacity
+     */
+    public CompactTrie(int expectedNodes) {
+        int capacity = Math.max(16, expectedNodes);
+        labelStart = new int[capacity];
+        labelLength = new int[capacity];
+        firstChar = new char[capacity];
+        firstChild = new int[capacity];
+        nextSibling = new int[capacity];
+        terminal = new long[(capacity + 63) >>> 6];
+        newNode(0, 0, '\0'); // Root with an empty label
+    }
+
+    /**
+     * Inserts a word into the trie.
+     *
+     * @param word The word to be inserted
+     */
+    public void insert(String word) {
+        int node = ROOT;
+        int i = 0, n = word.length();
+
+        while (i < n) {
+            char ch = word.charAt(i);
+
+            // Find the child starting with ch, remembering where it would go in sorted order
+            int previous = NONE, child = firstChild[node];
+            while (child != NONE && firstChar[child] < ch) {
+                previous = child;
+                child = nextSibling[child];
+            }
+
+            if (child == NONE || firstChar[child] != ch) {
+                // No edge shares the next character: hang the whole remainder on a new leaf
+                int leaf = newNode(appendLabel(word, i, n), n - i, ch);
+                nextSibling[leaf] = child;
+                if (previous == NONE) {
+                    firstChild[node] = leaf;
+                } else {
+                    nextSibling[previous] = leaf;
+                }
+                node = leaf;
+                break;
+            }
+
+            // Follow the edge as far as it matches; split it if the word leaves it midway
+            int start = labelStart[child], length = labelLength[child], matched = 1;
+            i++;
+            while (matched < length && i < n && labels[start + matched] == word.charAt(i)) {
+                matched++;
+                i++;
+            }
+            if (matched < length) {
+                split(child, matched);
+            }
+            node = child;
+        }
+
+        if (!isTerminal(node)) {
+            terminal[node >>> 6] |= 1L << node;
+            size++;
+        }
+    }
+
+    /**
+     * Searches for a full word in the trie.
+     *
+     * @param word The word to search
+     * @return True if the word exists, false otherwise
+     */
+    public boolean search(String word) {
+        int node = findNode(word, true);
+        return node != NONE && isTerminal(node);
+    }
+
+    /**
+     * Checks if any word in the trie starts with the given prefix.
+     *
+     * @param prefix The prefix to check
+     * @return True if at least one word starts with the prefix
+     */
+    public boolean startsWith(String prefix) {
+        return findNode(prefix, false) != NONE;
+    }
+
+    /**
+     * Finds the words within a bounded edit distance of a (possibly misspelled) word.
+     * Works like {@link Trie#fuzzySearch}: the Levenshtein DP row is extended character by
+     * character along the edge labels, and a branch is pruned once the row's minimum exceeds
+     * maxEdits.
+     *
+     * @param word     The query
+     * @param maxEdits Largest Levenshtein distance to accept
+     * @return Lazy stream of matches with their distances (in no particular order)
+     */
+    public Stream<FuzzyMatch> fuzzySearch(String word, int maxEdits) {
+        Iterator<FuzzyMatch> matches = new Iterator<FuzzyMatch>() {
+            private final Deque<Frame> stack = new ArrayDeque<>();
+            private char[] path = new char[32];
+            private FuzzyMatch next;
+
+            {
+                stack.push(new Frame(ROOT, 0, FuzzyMatch.firstRow(word)));
+                next = advance();
+            }
+
+            private FuzzyMatch advance() {
+                frames:
+                while (!stack.isEmpty()) {
+                    Frame frame = stack.pop();
+                    int node = frame.node, length = frame.pathLength;
+                    int[] row = frame.row;
+
+                    // Extend the row along the edge label, giving up once no extension can match
+                    int start = labelStart[node], end = start + labelLength[node];
+                    for (int k = start; k < end; k++) {
+                        if (length == path.length) {
+                            path = Arrays.copyOf(path, length * 2);
+                        }
+                        path[length++] = labels[k];
+                        int[] nextRow = new int[row.length];
+                        if (FuzzyMatch.nextRow(row, word, labels[k], nextRow) > maxEdits) {
+                            continue frames;
+                        }
+                        row = nextRow;
+                    }
+
+                    for (int child = firstChild[node]; child != NONE; child = nextSibling[child]) {
+                        stack.push(new Frame(child, length, row));
+                    }
+                    int distance = row[word.length()];
+                    if (isTerminal(node) && distance <= maxEdits) {
+                        return new FuzzyMatch(new String(path, 0, length), distance);
+                    }
+                }
+                return null;
+            }
+
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            public FuzzyMatch next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                FuzzyMatch current = next;
+                next = advance();
+                return current;
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(matches,
+                Spliterator.NONNULL | Spliterator.DISTINCT), false);
+    }
+
+    /**
+     * A node waiting to be visited by the fuzzy search, with the path length and DP row
+     * at the end of its parent's edge.
+     */
+    private static final class Frame {
+        final int node;
+        final int pathLength;
+        final int[] row;
+
+        Frame(int node, int pathLength, int[] row) {
+            this.node = node;
+            this.pathLength = pathLength;
+            this.row = row;
+        }
+    }
+
+    /**
+     * Walks the trie along s.
+     *
+     * @param s     The input string to find
+     * @param exact Whether s must end exactly at a node (false: may end inside an edge label)
+     * @return The node reached (the edge's lower node if s ends inside it), or NONE
+     */
+    private int findNode(String s, boolean exact) {
+        int node = ROOT;
+        int i = 0, n = s.length();
+
+        while (i < n) {
+            char ch = s.charAt(i);
+            int child = firstChild[node];
+            while (child != NONE && firstChar[child] < ch) {
+                child = nextSibling[child];
+            }
+            if (child == NONE || firstChar[child] != ch) {
+                return NONE;
+            }
+
+            int start = labelStart[child], length = labelLength[child], matched = 1;
+            i++;
+            while (matched < length && i < n) {
+                if (labels[start + matched] != s.charAt(i)) {
+                    return NONE;
+                }
+                matched++;
+                i++;
+            }
+            if (matched < length && exact) {
+                return NONE; // s ends inside the edge label
+            }
+            node = child;
+        }
+        return node;
+    }
+
+    /**
+     * Cuts a node's edge label after the given number of chars. The node keeps the upper part
+     * (so its parent and siblings are untouched); a new child takes the rest together with the
+     * node's children and terminal flag.
+     */
+    private void split(int node, int at) {
+        int start = labelStart[node];
+        int lower = newNode(start + at, labelLength[node] - at, labels[start + at]);
+        firstChild[lower] = firstChild[node];
+        if (isTerminal(node)) {
+            terminal[lower >>> 6] |= 1L << lower;
+            terminal[node >>> 6] &= ~(1L << node);
+        }
+        labelLength[node] = at;
+        firstChild[node] = lower;
+    }
+
+    private int newNode(int start, int length, char first) {
+        if (nodeCount == firstChild.length) {
+            int capacity = nodeCount + (nodeCount >>> 1);
+            labelStart = Arrays.copyOf(labelStart, capacity);
+            labelLength = Arrays.copyOf(labelLength, capacity);
+            firstChar = Arrays.copyOf(firstChar, capacity);
+            firstChild = Arrays.copyOf(firstChild, capacity);
+            nextSibling = Arrays.copyOf(nextSibling, capacity);
+            terminal = Arrays.copyOf(terminal, (capacity + 63) >>> 6);
+        }
+        int node = nodeCount++;
+        labelStart[node] = start;
+        labelLength[node] = length;
+        firstChar[node] = first;
+        firstChild[node] = NONE;
+        nextSibling[node] = NONE;
+        return node;
+    }
+
+    private int appendLabel(String word, int from, int to) {
+        int length = to - from;
+        if (labelsUsed + length > labels.length) {
+            labels = Arrays.copyOf(labels, Math.max(labelsUsed + length, labels.length + (labels.length >>> 1)));
+        }
+        word.getChars(from, to, labels, labelsUsed);
+        int start = labelsUsed;
+        labelsUsed += length;
+        return start;
+    }
+
+    private boolean isTerminal(int node) {
+        return (terminal[node >>> 6] & (1L << node)) != 0;
+    }
+
+    /**
+     * @return Number of distinct words stored
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return Number of nodes, including the root
+     */
+    public int nodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * @return Bytes held by the node columns and the label pool (allocated capacity)
+     */
+    public long memoryBytes() {
+        long arrays = 16L * 7; // Array headers
+        return arrays + 4L * (labelStart.length + labelLength.length + firstChild.length + nextSibling.length)
+                + 2L * (firstChar.length + labels.length) + 8L * terminal.length;
+    }
+
+    /**
+     * Returns the heap in use after a few garbage collections (for measurements only).
+     */
+    static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+
+    /**
+     * Builds a product-name-like dictionary, e.g. "kovalin-tepra-4821".
+     */
+    static String[] productNames(int count, long seed) {
+        String[] syllables = {"ka", "lo", "mi", "ra", "te", "vo", "sun", "pex", "dri", "zen", "bar", "cor",
+                "fi", "gu", "ho", "ja", "nel", "qui", "sta", "wyn"};
+        Random random = new Random(seed);
+        String[] names = new String[count];
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            sb.setLength(0);
+            for (int word = 0; word < 2; word++) {
+                int parts = 2 + random.nextInt(3);
+                for (int p = 0; p < parts; p++) {
+                    sb.append(syllables[random.nextInt(syllables.length)]);
+                }
+                sb.append('-');
+            }
+            sb.append(random.nextInt(10_000));
+            names[i] = sb.toString();
+        }
+        return names;
+    }
+
+    /**
+     * Example usage and a measured bytes-per-key comparison with {@link Trie}.
+     */
+    public static void main(String[] args) {
+        CompactTrie trie = new CompactTrie();
+        trie.insert("hello");
+        trie.insert("helium");
+        trie.insert("heat");
+
+        System.out.println("Search 'hello': " + trie.search("hello"));  // true
+        System.out.println("Search 'helix': " + trie.search("helix"));  // false
+        System.out.println("Search 'hel': " + trie.search("hel"));      // false
+        System.out.println("StartsWith 'hel': " + trie.startsWith("hel")); // true
+        System.out.println("StartsWith 'ho': " + trie.startsWith("ho")); // false
+
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+        String[] names = productNames(count, 15);
+        long keyChars = 0;
+        for (String name : names) {
+            keyChars += name.length();
+        }
+        System.out.printf("%n%,d product names, %.1f chars on average%n", count, (double) keyChars / count);
+
+        long before = usedHeap();
+        Trie legacy = new Trie();
+        for (String name : names) {
+            legacy.insert(name);
+        }
+        long legacyBytes = usedHeap() - before;
+        System.out.printf("Trie        : %,13d bytes, %7.1f bytes/key%s%n", legacyBytes,
+                (double) legacyBytes / count, legacy.search(names[0]) ? "" : " (lookup failed)");
+        legacy = null;
+
+        before = usedHeap();
+        CompactTrie compact = new CompactTrie();
+        for (String name : names) {
+            compact.insert(name);
+        }
+        long compactBytes = usedHeap() - before;
+        System.out.printf("CompactTrie : %,13d bytes, %7.1f bytes/key (%,d nodes, %,d bytes allocated in arrays)%n",
+                compactBytes, (double) compactBytes / compact.size(), compact.nodeCount(), compact.memoryBytes());
+    }
+}
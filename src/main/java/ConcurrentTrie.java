@@ -0,0 +1,315 @@
+package main.java;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Thread-safe trie with wait-free lookups, lock-free inserts and deletes, and O(1) snapshots.
+ *
+ * Nodes are immutable. An update copies only the nodes on the word's path (each with its
+ * sorted child arrays) and publishes the new root with a single CAS, retrying if another
+ * update won the race. Readers take the current root and traverse a structure that can never
+ * change under them, so they never block, retry or see a half-applied update.
+ * A snapshot is just the root reference: it shares every unchanged node with the live trie,
+ * so memory does not double, and later updates on either side never affect the other.
+ */
+public class ConcurrentTrie {
+
+    /**
+     * Immutable node: sorted child characters, matching children, end-of-word flag and the
+     * number of words in the subtree (so size() is O(1) and consistent).
+     */
+    private static final class Node {
+        static final Node EMPTY = new Node(new char[0], new Node[0], false);
+
+        final char[] keys;
+        final Node[] children;
+        final boolean terminal;
+        final int count;
+
+        Node(char[] keys, Node[] children, boolean terminal) {
+            this.keys = keys;
+            this.children = children;
+            this.terminal = terminal;
+            int sum = terminal ? 1 : 0;
+            for (Node child : children) {
+                sum += child.count;
+            }
+            this.count = sum;
+        }
+
+        Node child(char ch) {
+            int i = Arrays.binarySearch(keys, ch);
+            return i >= 0 ? children[i] : null;
+        }
+
+        boolean isEmpty() {
+            return count == 0;
+        }
+    }
+
+    private final AtomicReference<Node> root;
+
+    /**
+     * Initializes an empty trie.
+     */
+    public ConcurrentTrie() {
+        this(Node.EMPTY);
+    }
+
+    private ConcurrentTrie(Node root) {
+        this.root = new AtomicReference<>(root);
+    }
+
+    /**
+     * Inserts a word into the trie.
+     *
+     * @param word The word to be inserted
+     * @return True if the word was added, false if it was already present
+     */
+    public boolean insert(String word) {
+        while (true) {
+            Node current = root.get();
+            Node updated = insert(current, word, 0);
+            if (updated == current) {
+                return false;
+            }
+            if (root.compareAndSet(current, updated)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Removes a word, pruning nodes left without words.
+     *
+     * @param word The word to remove
+     * @return True if the word was removed, false if it was not present
+     */
+    public boolean delete(String word) {
+        while (true) {
+            Node current = root.get();
+            Node updated = delete(current, word, 0);
+            if (updated == current) {
+                return false;
+            }
+            if (root.compareAndSet(current, updated == null ? Node.EMPTY : updated)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Searches for a full word in the trie.
+     *
+     * @param word The word to search
+     * @return True if the word exists, false otherwise
+     */
+    public boolean search(String word) {
+        Node node = findNode(root.get(), word);
+        return node != null && node.terminal;
+    }
+
+    /**
+     * Checks if any word in the trie starts with the given prefix.
+     *
+     * @param prefix The prefix to check
+     * @return True if at least one word starts with the prefix
+     */
+    public boolean startsWith(String prefix) {
+        Node node = findNode(root.get(), prefix);
+        return node != null && !node.isEmpty();
+    }
+
+    /**
+     * @return Number of words, consistent with a single point in time
+     */
+    public int size() {
+        return root.get().count;
+    }
+
+    /**
+     * Takes an O(1) snapshot. The snapshot is an independent trie: it can be queried (or even
+     * updated) while the original keeps changing, and neither sees the other's later updates.
+     *
+     * @return Trie holding exactly the words present at this moment
+     */
+    public ConcurrentTrie snapshot() {
+        return new ConcurrentTrie(root.get());
+    }
+
+    /**
+     * Visits the words starting with a prefix in sorted order, all from one consistent version.
+     *
+     * @param prefix  The prefix to enumerate
+     * @param visitor Receives each matching word
+     */
+    public void forEachWithPrefix(String prefix, Consumer<String> visitor) {
+        Node node = findNode(root.get(), prefix);
+        if (node != null) {
+            collect(node, new StringBuilder(prefix), visitor);
+        }
+    }
+
+    private static void collect(Node node, StringBuilder path, Consumer<String> visitor) {
+        if (node.terminal) {
+            visitor.accept(path.toString());
+        }
+        for (int i = 0; i < node.keys.length; i++) {
+            path.append(node.keys[i]);
+            collect(node.children[i], path, visitor);
+            path.setLength(path.length() - 1);
+        }
+    }
+
+    private static Node findNode(Node node, String s) {
+        for (int i = 0; i < s.length() && node != null; i++) {
+            node = node.child(s.charAt(i));
+        }
+        return node;
+    }
+
+    /**
+     * @return Copy of the path with the word added, or the same node if already present
+     */
+    private static Node insert(Node node, String word, int i) {
+        if (i == word.length()) {
+            return node.terminal ? node : new Node(node.keys, node.children, true);
+        }
+        char ch = word.charAt(i);
+        int at = Arrays.binarySearch(node.keys, ch);
+        Node child = at >= 0 ? node.children[at] : Node.EMPTY;
+        Node updated = insert(child, word, i + 1);
+        if (updated == child) {
+            return node;
+        }
+
+        if (at >= 0) {
+            Node[] children = node.children.clone();
+            children[at] = updated;
+            return new Node(node.keys, children, node.terminal);
+        }
+
+        // New child: insert into the sorted arrays
+        at = -at - 1;
+        char[] keys = new char[node.keys.length + 1];
+        Node[] children = new Node[keys.length];
+        System.arraycopy(node.keys, 0, keys, 0, at);
+        System.arraycopy(node.children, 0, children, 0, at);
+        keys[at] = ch;
+        children[at] = updated;
+        System.arraycopy(node.keys, at, keys, at + 1, node.keys.length - at);
+        System.arraycopy(node.children, at, children, at + 1, node.children.length - at);
+        return new Node(keys, children, node.terminal);
+    }
+
+    /**
+     * @return Copy of the path without the word (null if the node became empty),
+     *         or the same node if the word is absent
+     */
+    private static Node delete(Node node, String word, int i) {
+        if (i == word.length()) {
+            if (!node.terminal) {
+                return node;
+            }
+            return node.keys.length == 0 ? null : new Node(node.keys, node.children, false);
+        }
+        int at = Arrays.binarySearch(node.keys, word.charAt(i));
+        if (at < 0) {
+            return node;
+        }
+        Node child = node.children[at];
+        Node updated = delete(child, word, i + 1);
+        if (updated == child) {
+            return node;
+        }
+
+        if (updated != null) {
+            Node[] children = node.children.clone();
+            children[at] = updated;
+            return new Node(node.keys, children, node.terminal);
+        }
+
+        // Child became empty: drop it from the sorted arrays
+        if (node.keys.length == 1 && !node.terminal) {
+            return null;
+        }
+        char[] keys = new char[node.keys.length - 1];
+        Node[] children = new Node[keys.length];
+        System.arraycopy(node.keys, 0, keys, 0, at);
+        System.arraycopy(node.children, 0, children, 0, at);
+        System.arraycopy(node.keys, at + 1, keys, at, keys.length - at);
+        System.arraycopy(node.children, at + 1, children, at, children.length - at);
+        return new Node(keys, children, node.terminal);
+    }
+
+    /**
+     * Example usage: live updates streaming in while readers query and a snapshot stays fixed.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        ConcurrentTrie trie = new ConcurrentTrie();
+        trie.insert("hello");
+        trie.insert("helium");
+        trie.insert("heat");
+
+        ConcurrentTrie snapshot = trie.snapshot();
+        trie.delete("hello");
+        trie.insert("help");
+
+        List<String> live = new ArrayList<>(), frozen = new ArrayList<>();
+        trie.forEachWithPrefix("he", live::add);
+        snapshot.forEachWithPrefix("he", frozen::add);
+        System.out.println("Live 'he*':     " + live);     // [heat, helium, help]
+        System.out.println("Snapshot 'he*': " + frozen);   // [heat, helium, hello]
+
+        // Writers insert and delete product names while readers search without blocking
+        String[] names = CompactTrie.productNames(200_000, 17);
+        ConcurrentTrie dictionary = new ConcurrentTrie();
+        for (int i = 0; i < names.length / 2; i++) {
+            dictionary.insert(names[i]);
+        }
+        ConcurrentTrie before = dictionary.snapshot();
+
+        Thread[] writers = new Thread[2];
+        for (int w = 0; w < writers.length; w++) {
+            int offset = w;
+            writers[w] = new Thread(() -> {
+                for (int i = names.length / 2 + offset; i < names.length; i += writers.length) {
+                    dictionary.insert(names[i]);
+                }
+                for (int i = offset; i < names.length / 4; i += writers.length) {
+                    dictionary.delete(names[i]);
+                }
+            });
+        }
+        long[] lookups = new long[1];
+        Thread reader = new Thread(() -> {
+            long count = 0;
+            while (writers[0].isAlive() || writers[1].isAlive()) {
+                dictionary.search(names[(int) (count % names.length)]);
+                count++;
+            }
+            lookups[0] = count;
+        });
+
+        long start = System.nanoTime();
+        for (Thread writer : writers) {
+            writer.start();
+        }
+        reader.start();
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        reader.join();
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        int expected = (int) Arrays.stream(names, names.length / 4, names.length).distinct().count();
+        System.out.printf("%nAfter concurrent updates: %,d words (expected %,d), snapshot still %,d words%n",
+                dictionary.size(), expected, before.size());
+        System.out.printf("%,d lookups and %,d updates in %.2f s%n", lookups[0],
+                names.length / 2 + names.length / 4, seconds);
+    }
+}
@@ -1,15 +1,26 @@
 package main.java;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Generic implementation of Consistent Hashing with virtual nodes.
  * This helps in distributing keys evenly and allows minimal reshuffling
  * when nodes are added or removed.
  *
+ * The ring is published as an immutable snapshot (sorted long[] of 64-bit points plus a
+ * parallel node-index array). Lookups read the current snapshot without locking or allocating;
+ * membership changes rebuild a new snapshot once per call and swap it in atomically.
+ *
+ * With a load bound ε, {@link #acquire} implements consistent hashing with bounded loads:
+ * a node already holding (1 + ε) times the average load passes the key on clockwise.
+ *
  * @param <T> The type of the node (e.g., server or cache name)
  */
-public class ConsistentHash<T> {
+public class ConsistentHash<T> implements Router<T> {
 
     // Hash function to use (can be customized)
     private final HashFunction hashFunction;
@@ -17,8 +28,23 @@ public class ConsistentHash<T> {
     // Number of virtual nodes per physical node
     private final int numberOfReplicas;
 
-    // Sorted map representing the hash ring (hash -> node)
-    private final SortedMap<Integer, T> circle = new TreeMap<>();
+    // Writer-side membership: node -> hashes of its virtual nodes (guarded by this)
+    private final Map<T, long[]> members = new LinkedHashMap<>();
+
+    // Per-node load counters for acquire/release, kept across ring rebuilds
+    private final Map<T, AtomicLong> loads = new ConcurrentHashMap<>();
+
+    // Value of a removed node's counter: acquire and release leave it alone
+    private static final long RETIRED = Long.MIN_VALUE;
+
+    // Sum of all node loads
+    private final AtomicLong totalLoad = new AtomicLong();
+
+    // Allowed overload above the average (ε); infinite disables the bound
+    private final double loadEpsilon;
+
+    // Current immutable ring snapshot, replaced on every membership change
+    private volatile Ring<T> ring = Ring.empty();
 
     /**
      * Constructor to create a consistent hash ring.
@@ -28,23 +54,50 @@ public class ConsistentHash<T> {
      * @param nodes             Initial collection of real nodes
      */
     public ConsistentHash(HashFunction hashFunction, int numberOfReplicas, Collection<T> nodes) {
+        this(hashFunction, numberOfReplicas, nodes, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Constructor to create a consistent hash ring with bounded loads.
+     *
+     * @param hashFunction      Hash function to generate consistent keys
+     * @param numberOfReplicas  Number of virtual nodes per real node
+     * @param nodes             Initial collection of real nodes
+     * @param loadEpsilon       Allowed load above the average (e.g., 0.25 caps nodes at 1.25x average)
+     */
+    public ConsistentHash(HashFunction hashFunction, int numberOfReplicas, Collection<T> nodes, double loadEpsilon) {
+        if (!(loadEpsilon >= 0)) {
+            throw new IllegalArgumentException("Load epsilon must be non-negative");
+        }
         this.hashFunction = hashFunction;
         this.numberOfReplicas = numberOfReplicas;
+        this.loadEpsilon = loadEpsilon;
 
-        // Add all initial nodes to the hash ring
-        for (T node : nodes) {
-            add(node);
-        }
+        // Add all initial nodes to the hash ring in one rebuild
+        addAll(nodes);
     }
 
     /**
      * Adds a physical node along with its virtual nodes to the hash ring.
      */
     public void add(T node) {
-        for (int i = 0; i < numberOfReplicas; i++) {
-            // Create a unique identifier for each virtual node
-            int hash = hashFunction.hash(node.toString() + i);
-            circle.put(hash, node);
+        addAll(Collections.singletonList(node));
+    }
+
+    /**
+     * Adds several physical nodes, rebuilding the ring only once.
+     */
+    public synchronized void addAll(Collection<T> nodes) {
+        boolean changed = false;
+        for (T node : nodes) {
+            if (!members.containsKey(node)) {
+                members.put(node, replicaHashes(node));
+                loads.put(node, new AtomicLong());
+                changed = true;
+            }
+        }
+        if (changed) {
+            ring = Ring.build(members, loads);
         }
     }
 
@@ -52,9 +105,23 @@ public class ConsistentHash<T> {
      * Removes a node and its virtual nodes from the hash ring.
      */
     public void remove(T node) {
-        for (int i = 0; i < numberOfReplicas; i++) {
-            int hash = hashFunction.hash(node.toString() + i);
-            circle.remove(hash);
+        removeAll(Collections.singletonList(node));
+    }
+
+    /**
+     * Removes several physical nodes, rebuilding the ring only once.
+     */
+    public synchronized void removeAll(Collection<T> nodes) {
+        boolean changed = false;
+        for (T node : nodes) {
+            if (members.remove(node) != null) {
+                // Retire the counter in one step, so every unit taken before it is discounted exactly once
+                totalLoad.addAndGet(-loads.remove(node).getAndSet(RETIRED));
+                changed = true;
+            }
+        }
+        if (changed) {
+            ring = Ring.build(members, loads);
         }
     }
 
@@ -65,37 +132,412 @@ public class ConsistentHash<T> {
      * @return Node responsible for the key
      */
     public T get(Object key) {
-        if (circle.isEmpty()) {
+        return getForHash(hashKey(key));
+    }
+
+    /**
+     * Gets the node responsible for a numeric key without boxing it.
+     *
+     * @param key The key to route (e.g., user ID)
+     * @return Node responsible for the key
+     */
+    public T get(long key) {
+        return getForHash(hashFunction.hash64(key));
+    }
+
+    /**
+     * Gets the node owning a position on the ring.
+     *
+     * @param hash Ring position, as produced by this ring's hash function
+     * @return Node responsible for the position
+     */
+    public T getForHash(long hash) {
+        Ring<T> current = ring;
+        if (current.points.length == 0) {
             return null;
         }
 
-        // Compute hash of the key
-        int hash = hashFunction.hash(key.toString());
+        // First virtual node clockwise from the key hash (wraps around)
+        return current.nodeAt(current.ceilingIndex(hash));
+    }
 
-        // Get tail map: all nodes with hash >= key hash
-        if (!circle.containsKey(hash)) {
-            SortedMap<Integer, T> tailMap = circle.tailMap(hash);
-            // Wrap around if needed
-            hash = tailMap.isEmpty() ? circle.firstKey() : tailMap.firstKey();
+    /**
+     * Fills out with up to n distinct physical nodes for a key, walking clockwise from its hash.
+     * The first entry is the node {@link #get} returns. Nothing is allocated.
+     *
+     * @param key The key to route
+     * @param n   Number of replicas wanted
+     * @param out Destination array of at least n entries
+     * @return Number of nodes written (less than n if the ring has fewer nodes)
+     */
+    public int getN(Object key, int n, T[] out) {
+        return getNForHash(hashKey(key), n, out);
+    }
+
+    /**
+     * Numeric-key variant of {@link #getN(Object, int, Object[])}.
+     */
+    public int getN(long key, int n, T[] out) {
+        return getNForHash(hashFunction.hash64(key), n, out);
+    }
+
+    private int getNForHash(long hash, int n, T[] out) {
+        Ring<T> current = ring;
+        int points = current.points.length;
+        int wanted = Math.min(n, current.nodes.length);
+        int found = 0;
+
+        for (int step = 0, i = points == 0 ? 0 : current.ceilingIndex(hash); found < wanted && step < points; step++) {
+            T node = current.nodeAt(i);
+            if (!contains(out, found, node)) {
+                out[found++] = node;
+            }
+            if (++i == points) {
+                i = 0; // Wrap around
+            }
+        }
+        return found;
+    }
+
+    private static boolean contains(Object[] nodes, int count, Object node) {
+        for (int i = 0; i < count; i++) {
+            if (nodes[i] == node) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * One unit of load taken by {@link #acquire}: the chosen node and the load counter of the
+     * membership it was taken from.
+     */
+    public static final class Lease<T> {
+        private final T node;
+        private final AtomicLong load;
+
+        Lease(T node, AtomicLong load) {
+            this.node = node;
+            this.load = load;
+        }
+
+        /**
+         * @return Node that took the load
+         */
+        public T node() {
+            return node;
         }
+    }
 
-        return circle.get(hash);
+    /**
+     * Routes a key and records one unit of load on the chosen node.
+     * With a load bound, nodes at or above ceil((1 + ε) * average load) are skipped clockwise.
+     * Every acquire must be paired with one {@link #release} of the returned lease.
+     *
+     * @param key The key to route
+     * @return Lease on the node that took the load, or null if the ring is empty
+     */
+    public Lease<T> acquire(Object key) {
+        return acquireForHash(hashKey(key));
+    }
+
+    /**
+     * Numeric-key variant of {@link #acquire(Object)}.
+     */
+    public Lease<T> acquire(long key) {
+        return acquireForHash(hashFunction.hash64(key));
+    }
+
+    private Lease<T> acquireForHash(long hash) {
+        while (true) {
+            Ring<T> current = ring;
+            int points = current.points.length;
+            if (points == 0) {
+                return null;
+            }
+
+            // Capacity counts the load being placed, so some node is always below it
+            long capacity = Double.isInfinite(loadEpsilon)
+                    ? Long.MAX_VALUE
+                    : (long) Math.ceil((1 + loadEpsilon) * (totalLoad.get() + 1) / current.nodes.length);
+
+            for (int step = 0, i = current.ceilingIndex(hash); step < points; step++) {
+                AtomicLong load = current.loads[current.nodeIndexes[i]];
+                long value = load.get();
+                if (value >= 0 && value < capacity && load.compareAndSet(value, value + 1)) {
+                    totalLoad.incrementAndGet();
+                    T node = current.nodeAt(i);
+                    if (loads.get(node) == load) {
+                        return new Lease<>(node, load);
+                    }
+                    // The node was removed after this snapshot was read. Retiring its counter
+                    // took this unit back off the total, so there is nothing to undo: route again
+                    break;
+                }
+                if (++i == points) {
+                    i = 0;
+                }
+            }
+            // Lost every race this round, or the node left: retry on the current ring and average
+        }
+    }
+
+    /**
+     * Releases one unit of load previously taken by {@link #acquire}.
+     * A lease on a node removed in the meantime is a no-op, even if the node has been added back:
+     * its load was discarded with the membership it was taken from.
+     *
+     * @param lease Lease returned by acquire
+     */
+    public void release(Lease<T> lease) {
+        AtomicLong load = lease.load;
+        while (true) {
+            long value = load.get();
+            if (value <= 0) {
+                return; // Retired, or an unbalanced release
+            }
+            if (load.compareAndSet(value, value - 1)) {
+                totalLoad.decrementAndGet();
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return Current load recorded for a node by acquire/release
+     */
+    public long load(T node) {
+        AtomicLong load = loads.get(node);
+        return load == null ? 0 : Math.max(0, load.get()); // Retired meanwhile counts as 0
+    }
+
+    /**
+     * Measures how evenly the sequential keys 0..keyCount-1 spread over the nodes.
+     *
+     * @param keyCount Number of keys to route
+     * @return Per-node load statistics
+     */
+    public LoadReport loadReport(long keyCount) {
+        Ring<T> current = ring;
+        long[] counts = new long[current.nodes.length];
+        if (counts.length > 0) {
+            for (long key = 0; key < keyCount; key++) {
+                counts[current.nodeIndexes[current.ceilingIndex(hashFunction.hash64(key))]]++;
+            }
+        }
+        return new LoadReport(counts);
+    }
+
+    /**
+     * Hashes a key through the input-specific entry points of the hash function,
+     * so strings, numbers and byte arrays are hashed without building intermediate strings.
+     */
+    private long hashKey(Object key) {
+        return hashKey(hashFunction, key);
+    }
+
+    static long hashKey(HashFunction hashFunction, Object key) {
+        if (key instanceof CharSequence) {
+            return hashFunction.hash64((CharSequence) key);
+        }
+        if (key instanceof Long || key instanceof Integer || key instanceof Short || key instanceof Byte) {
+            return hashFunction.hash64(((Number) key).longValue());
+        }
+        if (key instanceof byte[]) {
+            byte[] bytes = (byte[]) key;
+            return hashFunction.hash64(bytes, 0, bytes.length);
+        }
+        if (key instanceof ByteBuffer) {
+            return hashFunction.hash64((ByteBuffer) key);
+        }
+        return hashFunction.hash64(key.toString());
     }
 
     /**
      * Prints all virtual nodes in the hash ring for inspection/debugging.
      */
     public void printCircle() {
-        for (Map.Entry<Integer, T> entry : circle.entrySet()) {
-            System.out.println("Hash: " + entry.getKey() + " => Node: " + entry.getValue());
+        Ring<T> current = ring;
+        for (int i = 0; i < current.points.length; i++) {
+            System.out.println("Hash: " + current.points[i] + " => Node: " + current.nodeAt(i));
+        }
+    }
+
+    /**
+     * @return The current immutable ring state, e.g. to plan a migration after a membership change
+     */
+    public Ring<T> snapshot() {
+        return ring;
+    }
+
+    /**
+     * Plans the key migration from an earlier snapshot of this ring to its current state.
+     *
+     * @param before Snapshot taken before the membership change
+     * @return Planner listing the transferred hash ranges and filtering moved keys
+     */
+    public MigrationPlanner<T> planMigration(Ring<T> before) {
+        return new MigrationPlanner<>(before, ring, this::hashKey);
+    }
+
+    /**
+     * @return Approximate bytes held by the ring snapshot
+     */
+    public long footprintBytes() {
+        Ring<T> current = ring;
+        return 16 + 8L * current.points.length + 16 + 4L * current.nodeIndexes.length
+                + 16 + 8L * current.nodes.length;
+    }
+
+    /**
+     * Hashes the virtual nodes of a physical node.
+     */
+    private long[] replicaHashes(T node) {
+        long[] hashes = new long[numberOfReplicas];
+        for (int i = 0; i < numberOfReplicas; i++) {
+            hashes[i] = hashFunction.replicaHash64(node, i);
+        }
+        return hashes;
+    }
+
+    /**
+     * Immutable ring snapshot: sorted virtual node hashes and, per hash, the index of its physical node.
+     */
+    public static final class Ring<T> {
+        private static final Ring<?> EMPTY = new Ring<>(new long[0], new int[0], new Object[0], new AtomicLong[0]);
+
+        final long[] points;
+        final int[] nodeIndexes;
+        final Object[] nodes;
+        final AtomicLong[] loads;
+
+        private Ring(long[] points, int[] nodeIndexes, Object[] nodes, AtomicLong[] loads) {
+            this.points = points;
+            this.nodeIndexes = nodeIndexes;
+            this.nodes = nodes;
+            this.loads = loads;
+        }
+
+        @SuppressWarnings("unchecked")
+        static <T> Ring<T> empty() {
+            return (Ring<T>) EMPTY;
+        }
+
+        /**
+         * Builds a snapshot from the membership map. On a hash collision between
+         * virtual nodes, the node that joined first keeps the point.
+         */
+        static <T> Ring<T> build(Map<T, long[]> members, Map<T, AtomicLong> loads) {
+            Object[] nodes = members.keySet().toArray();
+            AtomicLong[] nodeLoads = new AtomicLong[nodes.length];
+            for (int i = 0; i < nodes.length; i++) {
+                nodeLoads[i] = loads.get(nodes[i]);
+            }
+            int total = 0;
+            for (long[] hashes : members.values()) {
+                total += hashes.length;
+            }
+
+            long[] sorted = new long[total];
+            int n = 0;
+            for (long[] hashes : members.values()) {
+                System.arraycopy(hashes, 0, sorted, n, hashes.length);
+                n += hashes.length;
+            }
+            Arrays.sort(sorted);
+
+            // Drop duplicate points, then assign owners in join order so the first joiner wins
+            int size = 0;
+            for (int i = 0; i < total; i++) {
+                if (size == 0 || sorted[size - 1] != sorted[i]) {
+                    sorted[size++] = sorted[i];
+                }
+            }
+            Ring<T> ring = new Ring<>(Arrays.copyOf(sorted, size), new int[size], nodes, nodeLoads);
+            Arrays.fill(ring.nodeIndexes, -1);
+
+            int nodeIndex = 0;
+            for (long[] hashes : members.values()) {
+                for (long hash : hashes) {
+                    int i = Arrays.binarySearch(ring.points, hash);
+                    if (ring.nodeIndexes[i] < 0) {
+                        ring.nodeIndexes[i] = nodeIndex;
+                    }
+                }
+                nodeIndex++;
+            }
+            return ring;
+        }
+
+        /**
+         * Index of the first point greater than or equal to the hash, wrapping to 0 past the end.
+         */
+        int ceilingIndex(long hash) {
+            int lo = 0, hi = points.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (points[mid] < hash) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo == points.length ? 0 : lo;
+        }
+
+        @SuppressWarnings("unchecked")
+        T nodeAt(int index) {
+            return (T) nodes[nodeIndexes[index]];
+        }
+
+        /**
+         * @return Number of virtual nodes on the ring
+         */
+        public int size() {
+            return points.length;
+        }
+
+        /**
+         * @return Node owning a ring position in this snapshot, or null if the ring is empty
+         */
+        public T nodeForHash(long hash) {
+            return points.length == 0 ? null : nodeAt(ceilingIndex(hash));
         }
     }
 
     /**
      * Functional interface to abstract hash functions.
+     * Only the 32-bit string hash is required; the 64-bit entry points default to it
+     * and are overridden by hash functions that can hash raw input directly.
      */
     public interface HashFunction {
         int hash(String key);
+
+        default long hash64(CharSequence key) {
+            return hash(key.toString());
+        }
+
+        default long hash64(byte[] key, int offset, int length) {
+            return hash(new String(key, offset, length, StandardCharsets.ISO_8859_1));
+        }
+
+        default long hash64(ByteBuffer key) {
+            byte[] bytes = new byte[key.remaining()];
+            key.duplicate().get(bytes);
+            return hash64(bytes, 0, bytes.length);
+        }
+
+        default long hash64(long key) {
+            return hash(Long.toString(key));
+        }
+
+        /**
+         * Ring position of one virtual node of a physical node.
+         */
+        default long replicaHash64(Object node, int replica) {
+            // Create a unique identifier for each virtual node
+            return hash(node.toString() + replica);
+        }
     }
 
     /**
@@ -108,6 +550,108 @@ public class ConsistentHash<T> {
         }
     }
 
+    /**
+     * 64-bit MurmurHash3 over raw key bytes. Virtual nodes use the replica number as the seed,
+     * so no per-replica strings are built.
+     */
+    public static class Murmur3HashFunction implements HashFunction {
+        public int hash(String key) {
+            return (int) hash64(key);
+        }
+
+        public long hash64(CharSequence key) {
+            return Murmur3.hash64(key, 0);
+        }
+
+        public long hash64(byte[] key, int offset, int length) {
+            return Murmur3.hash64(key, offset, length, 0);
+        }
+
+        public long hash64(ByteBuffer key) {
+            return Murmur3.hash64(key, 0);
+        }
+
+        public long hash64(long key) {
+            return Murmur3.hash64(key, 0);
+        }
+
+        public long replicaHash64(Object node, int replica) {
+            return Murmur3.hash64(node instanceof CharSequence ? (CharSequence) node : node.toString(), replica);
+        }
+    }
+
+    /**
+     * 64-bit xxHash over raw key bytes. Virtual nodes use the replica number as the seed,
+     * so no per-replica strings are built.
+     */
+    public static class XxHash64HashFunction implements HashFunction {
+        public int hash(String key) {
+            return (int) hash64(key);
+        }
+
+        public long hash64(CharSequence key) {
+            return XxHash64.hash(key, 0);
+        }
+
+        public long hash64(byte[] key, int offset, int length) {
+            return XxHash64.hash(key, offset, length, 0);
+        }
+
+        public long hash64(ByteBuffer key) {
+            return XxHash64.hash(key, 0);
+        }
+
+        public long hash64(long key) {
+            return XxHash64.hash(key, 0);
+        }
+
+        public long replicaHash64(Object node, int replica) {
+            return XxHash64.hash(node instanceof CharSequence ? (CharSequence) node : node.toString(), replica);
+        }
+    }
+
+    /**
+     * Key counts per node and their spread.
+     */
+    public static class LoadReport {
+        public final long[] counts;
+        public final double mean;
+        public final double standardDeviation;
+        public final long min;
+        public final long max;
+
+        LoadReport(long[] counts) {
+            this.counts = counts;
+            long sum = 0, lo = Long.MAX_VALUE, hi = 0;
+            for (long c : counts) {
+                sum += c;
+                lo = Math.min(lo, c);
+                hi = Math.max(hi, c);
+            }
+            this.mean = counts.length == 0 ? 0 : (double) sum / counts.length;
+            double squares = 0;
+            for (long c : counts) {
+                squares += (c - mean) * (c - mean);
+            }
+            this.standardDeviation = counts.length == 0 ? 0 : Math.sqrt(squares / counts.length);
+            this.min = counts.length == 0 ? 0 : lo;
+            this.max = hi;
+        }
+
+        /**
+         * @return Standard deviation as a fraction of the mean load
+         */
+        public double relativeStandardDeviation() {
+            return mean == 0 ? 0 : standardDeviation / mean;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("mean=%.1f, stddev=%.1f (%.2f%%), min=%d, max=%d",
+                    mean, standardDeviation, 100 * relativeStandardDeviation(), min, max);
+        }
+    }
+
     /**
      * Sample demo usage of ConsistentHash.
      */
@@ -135,5 +679,35 @@ public class ConsistentHash<T> {
         // Visualize the full hash ring
         System.out.println("\nHash Ring Snapshot:");
         ch.printCircle();
+
+        // Replica set for a key
+        String[] replicaSet = new String[2];
+        int count = ch.getN("Key1", 2, replicaSet);
+        System.out.println("\nKey1 replicas => " + Arrays.toString(Arrays.copyOf(replicaSet, count)));
+
+        // Bounded loads: a hot key spills over once its node exceeds 1.25x the average
+        ConsistentHash<String> bounded = new ConsistentHash<>(new Murmur3HashFunction(), 100, servers, 0.25);
+        Map<String, Integer> placed = new TreeMap<>();
+        for (int i = 0; i < 30; i++) {
+            placed.merge(bounded.acquire("hot-tenant").node(), 1, Integer::sum);
+        }
+        System.out.println("30 requests for one hot key with epsilon = 0.25 => " + placed);
+
+        // Distribution report: pick a replica count on evidence
+        System.out.println("\nLoad spread of 1M sequential keys over 10 nodes (stddev / mean):");
+        List<String> nodes = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            nodes.add("cache-" + i);
+        }
+        HashFunction[] functions = {new DefaultHashFunction(), new Murmur3HashFunction(), new XxHash64HashFunction()};
+        System.out.println("Replicas | Default  | Murmur3  | xxHash64");
+        for (int replicas : new int[]{10, 50, 100, 200, 500}) {
+            System.out.printf("%8d", replicas);
+            for (HashFunction function : functions) {
+                LoadReport report = new ConsistentHash<>(function, replicas, nodes).loadReport(1_000_000);
+                System.out.printf(" | %7.2f%%", 100 * report.relativeStandardDeviation());
+            }
+            System.out.println();
+        }
     }
 }
@@ -0,0 +1,150 @@
+package main.java;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+
+/**
+ * Content-defined chunking with the FastCDC gear hash.
+ *
+ * A gear hash (h = (h << 1) + GEAR[byte]) runs over the data, and a chunk ends where the top
+ * bits of h are all zero. Boundaries therefore depend only on the last few dozen bytes, not on
+ * offsets: an insertion moves the boundaries near it but the chunks after it come out identical,
+ * which is what lets a chunk store deduplicate shifted data and data shared between files.
+ *
+ * FastCDC details: nothing is hashed before minSize (no chunk can end there anyway), a stricter
+ * mask is used before avgSize and a looser one after it (normalized chunking, which narrows the
+ * size distribution around avgSize), and chunks are cut at maxSize regardless.
+ * With minSize == maxSize this degenerates to fixed-size blocks.
+ */
+public class ContentDefinedChunker {
+
+    private static final long[] GEAR = new long[256];
+
+    static {
+        // Fixed seed: boundaries must be the same in every process that shares a chunk store
+        Random random = new Random(0x6765617248617368L);
+        for (int i = 0; i < GEAR.length; i++) {
+            GEAR[i] = random.nextLong();
+        }
+    }
+
+    /**
+     * Receives chunks in order.
+     */
+    public interface ChunkConsumer {
+        void accept(byte[] data, int offset, int length) throws IOException;
+    }
+
+    private final int minSize;
+    private final int avgSize;
+    private final int maxSize;
+    private final long maskSmall;   // Used before avgSize: one bit more than log2(avgSize)
+    private final long maskLarge;   // Used after avgSize: one bit less
+
+    /**
+     * @param minSize Smallest chunk (except the last one)
+     * @param avgSize Target average chunk size (rounded to a power of two for the masks)
+     * @param maxSize Largest chunk
+     */
+    public ContentDefinedChunker(int minSize, int avgSize, int maxSize) {
+        if (minSize <= 0 || minSize > avgSize || avgSize > maxSize) {
+            throw new IllegalArgumentException("Chunk sizes must satisfy 0 < min <= avg <= max");
+        }
+        this.minSize = minSize;
+        this.avgSize = avgSize;
+        this.maxSize = maxSize;
+        int bits = 31 - Integer.numberOfLeadingZeros(avgSize);
+        this.maskSmall = topBits(Math.min(63, bits + 1));
+        this.maskLarge = topBits(Math.max(1, bits - 1));
+    }
+
+    /**
+     * Fixed-size blocks (the classic rsync mode), for comparison.
+     */
+    public static ContentDefinedChunker fixedSize(int blockSize) {
+        return new ContentDefinedChunker(blockSize, blockSize, blockSize);
+    }
+
+    private static long topBits(int n) {
+        return -1L << (64 - n);
+    }
+
+    /**
+     * Finds the end of the chunk starting at data[offset].
+     *
+     * @param data   The data
+     * @param offset Start of the chunk
+     * @param length Bytes available from offset; must be at least maxSize unless the data ends there
+     * @return Length of the chunk
+     */
+    public int cut(byte[] data, int offset, int length) {
+        if (length <= minSize) {
+            return length;
+        }
+        int end = Math.min(length, maxSize);
+        int normal = Math.min(end, avgSize);
+        long h = 0;
+        int i = minSize;
+        for (; i < normal; i++) {
+            h = (h << 1) + GEAR[data[offset + i] & 0xff];
+            if ((h & maskSmall) == 0) {
+                return i + 1;
+            }
+        }
+        for (; i < end; i++) {
+            h = (h << 1) + GEAR[data[offset + i] & 0xff];
+            if ((h & maskLarge) == 0) {
+                return i + 1;
+            }
+        }
+        return end;
+    }
+
+    /**
+     * Splits a stream into chunks.
+     *
+     * @param in       The data
+     * @param consumer Receives each chunk; the array is reused after accept returns
+     */
+    public void split(InputStream in, ChunkConsumer consumer) throws IOException {
+        byte[] buffer = new byte[Math.max(1 << 20, 2 * maxSize)];
+        int start = 0, limit = 0;
+        boolean eof = false;
+        while (true) {
+            if (limit - start < maxSize && !eof) {
+                System.arraycopy(buffer, start, buffer, 0, limit - start);
+                limit -= start;
+                start = 0;
+                int read = RsyncDelta.readFully(in, buffer, limit, buffer.length - limit);
+                limit += read;
+                eof = limit < buffer.length;
+            }
+            if (start == limit) {
+                return;
+            }
+            int length = cut(buffer, start, limit - start);
+            consumer.accept(buffer, start, length);
+            start += length;
+        }
+    }
+
+    public int minSize() {
+        return minSize;
+    }
+
+    public int avgSize() {
+        return avgSize;
+    }
+
+    public int maxSize() {
+        return maxSize;
+    }
+
+    @Override
+    public String toString() {
+        return minSize == maxSize
+                ? "fixed " + maxSize
+                : "FastCDC " + minSize + "/" + avgSize + "/" + maxSize;
+    }
+}
@@ -0,0 +1,76 @@
+package main.java;
+
+/**
+ * A word found by a fuzzy (bounded edit distance) trie search, with its Levenshtein distance
+ * to the query. Also holds the dynamic-programming step shared by the trie walkers.
+ */
+public final class FuzzyMatch {
+
+    public final String word;
+    public final int distance;
+
+    FuzzyMatch(String word, int distance) {
+        this.word = word;
+        this.distance = distance;
+    }
+
+    /**
+     * @return Levenshtein row of the empty prefix: distances 0..query.length()
+     */
+    static int[] firstRow(String query) {
+        int[] row = new int[query.length() + 1];
+        for (int j = 0; j < row.length; j++) {
+            row[j] = j;
+        }
+        return row;
+    }
+
+    /**
+     * Extends the Levenshtein DP by one trie character.
+     * row[j] is the edit distance between the trie prefix and the first j chars of the query.
+     *
+     * @param previous Row of the prefix without ch
+     * @param query    The word being searched for
+     * @param ch       Next character of the trie prefix
+     * @param next     Receives the row of the prefix with ch
+     * @return Smallest value in the new row; once it exceeds the bound, no extension can match
+     */
+    static int nextRow(int[] previous, String query, char ch, int[] next) {
+        next[0] = previous[0] + 1;
+        int min = next[0];
+        for (int j = 1; j < next.length; j++) {
+            int substitute = previous[j - 1] + (query.charAt(j - 1) == ch ? 0 : 1);
+            int value = Math.min(substitute, Math.min(previous[j], next[j - 1]) + 1);
+            next[j] = value;
+            min = Math.min(min, value);
+        }
+        return min;
+    }
+
+    /**
+     * Plain Levenshtein distance with early exit once every alignment exceeds maxEdits
+     * (the brute-force baseline).
+     *
+     * @return The distance, or maxEdits + 1 if it exceeds maxEdits
+     */
+    static int distance(String a, String b, int maxEdits) {
+        if (Math.abs(a.length() - b.length()) > maxEdits) {
+            return maxEdits + 1;
+        }
+        int[] row = firstRow(b), next = new int[row.length];
+        for (int i = 0; i < a.length(); i++) {
+            if (nextRow(row, b, a.charAt(i), next) > maxEdits) {
+                return maxEdits + 1;
+            }
+            int[] swap = row;
+            row = next;
+            next = swap;
+        }
+        return Math.min(row[b.length()], maxEdits + 1);
+    }
+
+    @Override
+    public String toString() {
+        return word + " (" + distance + ")";
+    }
+}
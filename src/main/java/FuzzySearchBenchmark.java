@@ -0,0 +1,105 @@
+package main.java;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Fuzzy search benchmark: {@link CompactTrie#fuzzySearch} against brute-force Levenshtein over
+ * the whole word list, for misspelled queries on dictionaries of growing size.
+ *
+ * Default sizes are 1M and 10M words; 10M needs a heap of about 4 GB (e.g., -Xmx6g).
+ */
+public class FuzzySearchBenchmark {
+
+    private static final int QUERIES = 20;
+    private static final int MAX_EDITS = 2;
+
+    /**
+     * Misspells a word with one or two random edits (substitution, insertion or deletion).
+     */
+    static String misspell(String word, Random random) {
+        StringBuilder sb = new StringBuilder(word);
+        int edits = 1 + random.nextInt(2);
+        for (int e = 0; e < edits && sb.length() > 1; e++) {
+            int at = random.nextInt(sb.length());
+            char ch = (char) ('a' + random.nextInt(26));
+            switch (random.nextInt(3)) {
+                case 0:
+                    sb.setCharAt(at, ch);
+                    break;
+                case 1:
+                    sb.insert(at, ch);
+                    break;
+                default:
+                    sb.deleteCharAt(at);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Prints trie and brute-force latency per query for each dictionary size.
+     */
+    public static void main(String[] args) {
+        int[] sizes = args.length > 0
+                ? Arrays.stream(args).mapToInt(Integer::parseInt).toArray()
+                : new int[]{1_000_000, 10_000_000};
+
+        System.out.println("Words      | Trie ms/query | Brute force ms/query | Speed-up | Matches/query | Same results");
+        for (int size : sizes) {
+            String[] words;
+            CompactTrie trie;
+            try {
+                words = CompactTrie.productNames(size, 19);
+                trie = new CompactTrie(size * 3 / 2);
+                for (String word : words) {
+                    trie.insert(word);
+                }
+            } catch (OutOfMemoryError e) {
+                System.out.printf("%,10d | skipped: not enough heap (run with a larger -Xmx)%n", size);
+                continue;
+            }
+
+            Random random = new Random(size);
+            String[] queries = new String[QUERIES];
+            for (int q = 0; q < QUERIES; q++) {
+                queries[q] = misspell(words[random.nextInt(words.length)], random);
+            }
+
+            // Warm up both paths on a few queries
+            for (int q = 0; q < 3; q++) {
+                trie.fuzzySearch(queries[q], MAX_EDITS).count();
+                scan(words, queries[q]);
+            }
+
+            long trieNanos = 0, bruteNanos = 0, matches = 0;
+            boolean same = true;
+            for (String query : queries) {
+                long start = System.nanoTime();
+                Set<String> fromTrie = trie.fuzzySearch(query, MAX_EDITS).map(m -> m.word).collect(Collectors.toSet());
+                trieNanos += System.nanoTime() - start;
+
+                start = System.nanoTime();
+                Set<String> fromScan = scan(words, query);
+                bruteNanos += System.nanoTime() - start;
+
+                matches += fromTrie.size();
+                same &= fromTrie.equals(fromScan);
+            }
+            System.out.printf("%,10d | %13.3f | %20.1f | %7.0fx | %13.1f | %s%n", size,
+                    trieNanos / 1e6 / QUERIES, bruteNanos / 1e6 / QUERIES, (double) bruteNanos / trieNanos,
+                    (double) matches / QUERIES, same);
+        }
+    }
+
+    /**
+     * The brute-force baseline: a bounded edit distance against every word.
+     */
+    private static Set<String> scan(String[] words, String query) {
+        return Arrays.stream(words)
+                .filter(w -> FuzzyMatch.distance(w, query, MAX_EDITS) <= MAX_EDITS)
+                .collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,76 @@
+package main.java;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generic Cell Rate Algorithm (GCRA) limiter.
+ * The whole state is the theoretical arrival time (TAT) of the next request, one long in an
+ * AtomicLong. A request at time now conforms if it is at most the burst tolerance early:
+ * TAT - now <= tolerance, and then pushes TAT to max(TAT, now) + emission interval.
+ * A decision is a single CAS with no floating point.
+ *
+ * With tolerance = (burst - 1) * interval this admits exactly what a token bucket of capacity
+ * burst admits; GCRA just tracks the schedule instead of the token count.
+ */
+public class GcraRateLimiter implements RateLimiter {
+
+    private final long emissionIntervalNanos;  // Spacing of conforming requests: 1 / rate
+    private final long toleranceNanos;         // How early a request may arrive: (burst - 1) * interval
+    private final AtomicLong theoreticalArrival;
+
+    /**
+     * Initialize the limiter (starts with the full burst available).
+     *
+     * @param burst         Requests that may arrive back to back
+     * @param ratePerSecond Sustained requests per second
+     */
+    public GcraRateLimiter(int burst, int ratePerSecond) {
+        if (burst <= 0 || ratePerSecond <= 0) {
+            throw new IllegalArgumentException("Burst and rate must be positive");
+        }
+        this.emissionIntervalNanos = Math.max(1, Math.round(1_000_000_000.0 / ratePerSecond));
+        this.toleranceNanos = (burst - 1) * emissionIntervalNanos;
+        this.theoreticalArrival = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * Attempts to admit one request.
+     *
+     * @return true if request is allowed, false if rate limited
+     */
+    @Override
+    public boolean allowRequest() {
+        while (true) {
+            long tat = theoreticalArrival.get();
+            long now = System.nanoTime();
+            if (tat - now > toleranceNanos) {
+                return false; // Too early, even with the burst tolerance
+            }
+            long next = (tat - now > 0 ? tat : now) + emissionIntervalNanos;
+            if (theoreticalArrival.compareAndSet(tat, next)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @return Nanoseconds until the next request would conform (0 if one conforms now)
+     */
+    public long nanosUntilAllowed() {
+        return Math.max(0, theoreticalArrival.get() - System.nanoTime() - toleranceNanos);
+    }
+
+    /**
+     * Test usage of GcraRateLimiter.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        GcraRateLimiter limiter = new GcraRateLimiter(5, 2); // burst 5, 2 requests/sec
+
+        for (int i = 1; i <= 15; i++) {
+            boolean allowed = limiter.allowRequest();
+            System.out.printf("Request %02d: %s%n", i, allowed ? "ACCEPTED" : "REJECTED");
+
+            Thread.sleep(300); // 3.3 requests/sec > 2 requests/sec, will throttle
+        }
+    }
+}
@@ -8,13 +8,17 @@ public class GeoHash {
     // Base32 character set for geohashing
     private static final String BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz";
 
-    // Reverse mapping of characters to their 5-bit values
-    private static final Map<Character, Integer> BASE32_MAP = new HashMap<>();
+    // Reverse mapping of ASCII characters to their 5-bit values (-1 = not a geohash char)
+    private static final byte[] BASE32_DECODE = new byte[128];
 
-    // Populate the reverse map on class load
+    // Longest geohash that fits into a 64-bit interleaved long (12 chars * 5 bits = 60 bits)
+    public static final int MAX_LONG_PRECISION = 12;
+
+    // Populate the reverse lookup table on class load
     static {
+        Arrays.fill(BASE32_DECODE, (byte) -1);
         for (int i = 0; i < BASE32.length(); i++) {
-            BASE32_MAP.put(BASE32.charAt(i), i);
+            BASE32_DECODE[BASE32.charAt(i)] = (byte) i;
         }
     }
 
@@ -27,6 +31,12 @@ public class GeoHash {
      * @return Geohash string
      */
     public static String encode(double latitude, double longitude, int precision) {
+        if (precision >= 1 && precision <= MAX_LONG_PRECISION) {
+            return toBase32(encodeLong(latitude, longitude, precision), precision);
+        }
+
+        // Longer hashes than a long can hold fall back to interval bisection (which also
+        // keeps returning "" for a precision below 1)
         StringBuilder geohash = new StringBuilder();
         boolean isEven = true; // Toggle between longitude and latitude
         int bit = 0, ch = 0;
@@ -82,7 +92,7 @@ public class GeoHash {
         double[] lonRange = {-180.0, 180.0};
 
         for (int i = 0; i < geohash.length(); i++) {
-            int currentBits = BASE32_MAP.get(geohash.charAt(i));
+            int currentBits = base32Value(geohash.charAt(i));
 
             // Decode each of the 5 bits
             for (int mask = 16; mask != 0; mask >>= 1) {
@@ -113,7 +123,7 @@ public class GeoHash {
         double[] lonRange = {-180.0, 180.0};
 
         for (int i = 0; i < geohash.length(); i++) {
-            int currentBits = BASE32_MAP.get(geohash.charAt(i));
+            int currentBits = base32Value(geohash.charAt(i));
             for (int mask = 16; mask != 0; mask >>= 1) {
                 if (isEven) {
                     refineInterval(lonRange, (currentBits & mask) != 0);
@@ -128,6 +138,366 @@ public class GeoHash {
         return new BoundingBox(latRange[0], latRange[1], lonRange[0], lonRange[1]);
     }
 
+    /**
+     * Encode a latitude and longitude into a geohash packed as a long.
+     * The 5 * precision hash bits are right-aligned, longitude first, exactly
+     * as they appear in the Base32 string. No objects are allocated.
+     *
+     * @param latitude  Latitude coordinate
+     * @param longitude Longitude coordinate
+     * @param precision Number of geohash characters (1..12)
+     * @return Interleaved geohash bits
+     */
+    public static long encodeLong(double latitude, double longitude, int precision) {
+        checkLongPrecision(precision);
+
+        // Quantize both axes to 32-bit cell indexes, then interleave lon/lat bits (Morton order)
+        long interleaved = (spread(quantize(longitude, -180.0, 360.0)) << 1)
+                | spread(quantize(latitude, -90.0, 180.0));
+
+        return interleaved >>> (64 - 5 * precision);
+    }
+
+    /**
+     * Batch-encode columnar coordinates into packed geohashes.
+     *
+     * @param latitudes  Latitude column
+     * @param longitudes Longitude column
+     * @param precision  Number of geohash characters (1..12)
+     * @param out        Destination for the packed geohashes, at least as long as the inputs
+     */
+    public static void encode(double[] latitudes, double[] longitudes, int precision, long[] out) {
+        if (longitudes.length != latitudes.length) {
+            throw new IllegalArgumentException("Column lengths do not match");
+        }
+        encode(latitudes, longitudes, 0, latitudes.length, precision, out);
+    }
+
+    /**
+     * Batch-encode a slice [from, to) of columnar coordinates into the same slice of out.
+     * The loop body is branch-free so the JIT can unroll and vectorize it.
+     *
+     * @param latitudes  Latitude column
+     * @param longitudes Longitude column
+     * @param from       First index to encode (inclusive)
+     * @param to         Last index to encode (exclusive)
+     * @param precision  Number of geohash characters (1..12)
+     * @param out        Destination for the packed geohashes
+     */
+    public static void encode(double[] latitudes, double[] longitudes, int from, int to, int precision, long[] out) {
+        checkLongPrecision(precision);
+        if (from < 0 || to > latitudes.length || to > longitudes.length || to > out.length) {
+            throw new IllegalArgumentException("Range [" + from + ", " + to + ") exceeds column length");
+        }
+
+        int shift = 64 - 5 * precision;
+        for (int i = from; i < to; i++) {
+            long interleaved = (spread(quantize(longitudes[i], -180.0, 360.0)) << 1)
+                    | spread(quantize(latitudes[i], -90.0, 180.0));
+            out[i] = interleaved >>> shift;
+        }
+    }
+
+    /**
+     * Decode a packed geohash into its bounding box without allocating.
+     *
+     * @param hash      Packed geohash from {@link #encodeLong}
+     * @param precision Number of geohash characters the hash was encoded with
+     * @param bounds    Destination array: [minLat, maxLat, minLon, maxLon]
+     */
+    public static void decodeBounds(long hash, int precision, double[] bounds) {
+        checkLongPrecision(precision);
+        int bits = 5 * precision;
+        int lonBits = (bits + 1) / 2; // Longitude takes the extra bit on odd bit counts
+        int latBits = bits / 2;
+
+        // Left-align so the first hash bit (longitude) sits at bit 63
+        long aligned = hash << (64 - bits);
+        long lonIndex = compact(aligned >>> 1) >>> (32 - lonBits);
+        long latIndex = latBits == 0 ? 0 : compact(aligned) >>> (32 - latBits);
+
+        double lonWidth = Math.scalb(360.0, -lonBits);
+        double latHeight = Math.scalb(180.0, -latBits);
+
+        bounds[0] = -90.0 + latIndex * latHeight;
+        bounds[1] = bounds[0] + latHeight;
+        bounds[2] = -180.0 + lonIndex * lonWidth;
+        bounds[3] = bounds[2] + lonWidth;
+    }
+
+    /**
+     * Decode a packed geohash into its center point without allocating.
+     *
+     * @param hash      Packed geohash from {@link #encodeLong}
+     * @param precision Number of geohash characters the hash was encoded with
+     * @param center    Destination array: [latitude, longitude]
+     */
+    public static void decodeCenter(long hash, int precision, double[] center) {
+        checkLongPrecision(precision);
+        int bits = 5 * precision;
+        int lonBits = (bits + 1) / 2;
+        int latBits = bits / 2;
+
+        long aligned = hash << (64 - bits);
+        long lonIndex = compact(aligned >>> 1) >>> (32 - lonBits);
+        long latIndex = latBits == 0 ? 0 : compact(aligned) >>> (32 - latBits);
+
+        center[0] = -90.0 + (latIndex + 0.5) * Math.scalb(180.0, -latBits);
+        center[1] = -180.0 + (lonIndex + 0.5) * Math.scalb(360.0, -lonBits);
+    }
+
+    /**
+     * Batch-decode packed geohashes into columnar center points.
+     *
+     * @param hashes     Packed geohashes
+     * @param precision  Number of geohash characters the hashes were encoded with
+     * @param latitudes  Destination latitude column
+     * @param longitudes Destination longitude column
+     */
+    public static void decode(long[] hashes, int precision, double[] latitudes, double[] longitudes) {
+        checkLongPrecision(precision);
+        int n = hashes.length;
+        if (latitudes.length < n || longitudes.length < n) {
+            throw new IllegalArgumentException("Column lengths do not match");
+        }
+
+        int bits = 5 * precision;
+        int lonBits = (bits + 1) / 2;
+        int latBits = bits / 2;
+        double lonWidth = Math.scalb(360.0, -lonBits);
+        double latHeight = Math.scalb(180.0, -latBits);
+
+        for (int i = 0; i < n; i++) {
+            long aligned = hashes[i] << (64 - bits);
+            long lonIndex = compact(aligned >>> 1) >>> (32 - lonBits);
+            long latIndex = latBits == 0 ? 0 : compact(aligned) >>> (32 - latBits);
+            latitudes[i] = -90.0 + (latIndex + 0.5) * latHeight;
+            longitudes[i] = -180.0 + (lonIndex + 0.5) * lonWidth;
+        }
+    }
+
+    /**
+     * Decode a packed geohash to its full bounding box.
+     *
+     * @param hash      Packed geohash from {@link #encodeLong}
+     * @param precision Number of geohash characters the hash was encoded with
+     * @return BoundingBox object with min/max lat/lon
+     */
+    public static BoundingBox decodeBoundingBox(long hash, int precision) {
+        double[] bounds = new double[4];
+        decodeBounds(hash, precision, bounds);
+        return new BoundingBox(bounds[0], bounds[1], bounds[2], bounds[3]);
+    }
+
+    /**
+     * Convert a packed geohash to its Base32 string form.
+     *
+     * @param hash      Packed geohash from {@link #encodeLong}
+     * @param precision Number of geohash characters
+     * @return Geohash string
+     */
+    public static String toBase32(long hash, int precision) {
+        checkLongPrecision(precision);
+        char[] chars = new char[precision];
+        for (int i = precision - 1; i >= 0; i--) {
+            chars[i] = BASE32.charAt((int) (hash & 31));
+            hash >>>= 5;
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Convert a Base32 geohash string into its packed long form.
+     * The precision of the result is the length of the input.
+     *
+     * @param geohash Geohash string of at most 12 characters
+     * @return Packed geohash
+     */
+    public static long fromBase32(CharSequence geohash) {
+        checkLongPrecision(geohash.length());
+        long hash = 0;
+        for (int i = 0; i < geohash.length(); i++) {
+            hash = (hash << 5) | base32Value(geohash.charAt(i));
+        }
+        return hash;
+    }
+
+    /**
+     * Returns the packed geohash of an adjacent cell at the same precision.
+     * Steps across the antimeridian wrap around; steps past a pole have no cell.
+     *
+     * @param hash      Packed geohash from {@link #encodeLong}
+     * @param precision Number of geohash characters the hash was encoded with
+     * @param latStep   Cells to move north (positive) or south (negative)
+     * @param lonStep   Cells to move east (positive) or west (negative)
+     * @return Packed geohash of the neighbour, or -1 if it would lie beyond a pole
+     */
+    public static long neighbour(long hash, int precision, int latStep, int lonStep) {
+        checkLongPrecision(precision);
+        int bits = 5 * precision;
+        int lonBits = (bits + 1) / 2;
+        int latBits = bits / 2;
+
+        long aligned = hash << (64 - bits);
+        long lonIndex = compact(aligned >>> 1) >>> (32 - lonBits);
+        long latIndex = latBits == 0 ? 0 : compact(aligned) >>> (32 - latBits);
+
+        latIndex += latStep;
+        if (latIndex < 0 || latIndex >= (1L << latBits)) {
+            return -1; // Beyond the pole
+        }
+        lonIndex = (lonIndex + lonStep) & ((1L << lonBits) - 1); // Wrap across the antimeridian
+
+        return interleave(latIndex, latBits, lonIndex, lonBits);
+    }
+
+    /**
+     * Computes the 8 neighbours of a packed geohash in the order
+     * N, NE, E, SE, S, SW, W, NW. Missing cells beyond a pole are reported as -1.
+     *
+     * @param hash       Packed geohash from {@link #encodeLong}
+     * @param precision  Number of geohash characters the hash was encoded with
+     * @param neighbours Destination array of length 8
+     */
+    public static void neighbours(long hash, int precision, long[] neighbours) {
+        neighbours[0] = neighbour(hash, precision, 1, 0);
+        neighbours[1] = neighbour(hash, precision, 1, 1);
+        neighbours[2] = neighbour(hash, precision, 0, 1);
+        neighbours[3] = neighbour(hash, precision, -1, 1);
+        neighbours[4] = neighbour(hash, precision, -1, 0);
+        neighbours[5] = neighbour(hash, precision, -1, -1);
+        neighbours[6] = neighbour(hash, precision, 0, -1);
+        neighbours[7] = neighbour(hash, precision, 1, -1);
+    }
+
+    /**
+     * Picks the finest precision at which a bounding box is covered by at most maxCells cells.
+     * A box with minLon greater than maxLon is treated as crossing the antimeridian.
+     *
+     * @param box      Area to cover
+     * @param maxCells Upper bound on the number of covering cells
+     * @return Precision between 1 and 12
+     */
+    public static int coveringPrecision(BoundingBox box, int maxCells) {
+        for (int precision = MAX_LONG_PRECISION; precision > 1; precision--) {
+            if (coveringCellCount(box, precision) <= maxCells) {
+                return precision;
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * Lists the packed geohashes of all cells at the given precision that intersect a bounding box.
+     * A box with minLon greater than maxLon is treated as crossing the antimeridian.
+     *
+     * @param box       Area to cover
+     * @param precision Number of geohash characters of the covering cells
+     * @return Sorted packed geohashes of the covering cells
+     */
+    public static long[] coveringCells(BoundingBox box, int precision) {
+        checkLongPrecision(precision);
+        int bits = 5 * precision;
+        int lonBits = (bits + 1) / 2;
+        int latBits = bits / 2;
+
+        long latLo = quantize(box.minLat, -90.0, 180.0) >>> (32 - latBits);
+        long latHi = quantize(box.maxLat, -90.0, 180.0) >>> (32 - latBits);
+        long lonLo = quantize(box.minLon, -180.0, 360.0) >>> (32 - lonBits);
+        long lonHi = quantize(box.maxLon, -180.0, 360.0) >>> (32 - lonBits);
+        long lonCells = 1L << lonBits;
+        long lonCount = lonLo <= lonHi ? lonHi - lonLo + 1 : lonCells - lonLo + lonHi + 1;
+
+        long[] cells = new long[(int) ((latHi - latLo + 1) * lonCount)];
+        int n = 0;
+        for (long lat = latLo; lat <= latHi; lat++) {
+            for (long i = 0; i < lonCount; i++) {
+                cells[n++] = interleave(lat, latBits, (lonLo + i) & (lonCells - 1), lonBits);
+            }
+        }
+
+        Arrays.sort(cells);
+        return cells;
+    }
+
+    /**
+     * Counts the cells {@link #coveringCells} would return, without materializing them.
+     */
+    private static long coveringCellCount(BoundingBox box, int precision) {
+        int bits = 5 * precision;
+        int lonBits = (bits + 1) / 2;
+        int latBits = bits / 2;
+
+        long latLo = quantize(box.minLat, -90.0, 180.0) >>> (32 - latBits);
+        long latHi = quantize(box.maxLat, -90.0, 180.0) >>> (32 - latBits);
+        long lonLo = quantize(box.minLon, -180.0, 360.0) >>> (32 - lonBits);
+        long lonHi = quantize(box.maxLon, -180.0, 360.0) >>> (32 - lonBits);
+        long lonCount = lonLo <= lonHi ? lonHi - lonLo + 1 : (1L << lonBits) - lonLo + lonHi + 1;
+
+        return (latHi - latLo + 1) * lonCount;
+    }
+
+    /**
+     * Looks up the 5-bit value of a Base32 geohash character.
+     */
+    private static int base32Value(char c) {
+        int value = c < 128 ? BASE32_DECODE[c] : -1;
+        if (value < 0) {
+            throw new IllegalArgumentException("Invalid geohash character: '" + c + "'");
+        }
+        return value;
+    }
+
+    private static void checkLongPrecision(int precision) {
+        if (precision < 1 || precision > MAX_LONG_PRECISION) {
+            throw new IllegalArgumentException("Precision must be between 1 and " + MAX_LONG_PRECISION);
+        }
+    }
+
+    /**
+     * Maps a coordinate to its 32-bit cell index within [min, min + span].
+     * Values on or beyond the upper edge land in the last cell, like the bisection encoder.
+     */
+    private static long quantize(double value, double min, double span) {
+        long index = (long) ((value - min) / span * 0x1p32);
+        return Math.max(0L, Math.min(index, 0xFFFFFFFFL)); // Clamp without branches
+    }
+
+    /**
+     * Packs right-aligned latitude and longitude cell indexes back into a geohash.
+     */
+    private static long interleave(long latIndex, int latBits, long lonIndex, int lonBits) {
+        long lat = latBits == 0 ? 0 : spread(latIndex << (32 - latBits));
+        long lon = spread(lonIndex << (32 - lonBits));
+        return ((lon << 1) | lat) >>> (64 - (latBits + lonBits));
+    }
+
+    /**
+     * Spreads the low 32 bits of x so that bit i moves to bit 2i (magic-number interleave).
+     */
+    private static long spread(long x) {
+        x &= 0xFFFFFFFFL;
+        x = (x | (x << 16)) & 0x0000FFFF0000FFFFL;
+        x = (x | (x << 8)) & 0x00FF00FF00FF00FFL;
+        x = (x | (x << 4)) & 0x0F0F0F0F0F0F0F0FL;
+        x = (x | (x << 2)) & 0x3333333333333333L;
+        x = (x | (x << 1)) & 0x5555555555555555L;
+        return x;
+    }
+
+    /**
+     * Inverse of {@link #spread}: gathers the even bits of x into the low 32 bits.
+     */
+    private static long compact(long x) {
+        x &= 0x5555555555555555L;
+        x = (x | (x >>> 1)) & 0x3333333333333333L;
+        x = (x | (x >>> 2)) & 0x0F0F0F0F0F0F0F0FL;
+        x = (x | (x >>> 4)) & 0x00FF00FF00FF00FFL;
+        x = (x | (x >>> 8)) & 0x0000FFFF0000FFFFL;
+        x = (x | (x >>> 16)) & 0x00000000FFFFFFFFL;
+        return x;
+    }
+
     /**
      * Refines the interval based on the current bit.
      *
@@ -185,5 +555,9 @@ public class GeoHash {
         // Decode to bounding box
         BoundingBox box = decodeBoundingBox(geohash);
         System.out.println("Bounding Box: " + box);
+
+        // Allocation-free packed form
+        long packed = encodeLong(latitude, longitude, precision);
+        System.out.println("Packed Geohash: " + Long.toHexString(packed) + " => " + toBase32(packed, precision));
     }
 }
@@ -0,0 +1,289 @@
+package main.java;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Parallel bulk geohash stage for structure-of-arrays coordinate data.
+ * Work is split across a fork/join pool into independent slices; each slice runs the
+ * branch-free batch loop of {@link GeoHash#encode(double[], double[], int, int, int, long[])}
+ * which the JIT can unroll and auto-vectorize.
+ *
+ * Coordinate files hold n latitudes followed by n longitudes as little-endian doubles.
+ * The output file holds n little-endian packed geohashes (see {@link GeoHash#encodeLong}).
+ */
+public class GeoHashBulkEncoder {
+
+    // Points per fork/join leaf for in-memory columns
+    private static final int LEAF_POINTS = 1 << 16;
+
+    // Points per fork/join leaf for memory-mapped files (8 MB per mapped column slice)
+    private static final int FILE_LEAF_POINTS = 1 << 20;
+
+    // Points copied out of a buffer at a time so the array loop can run on them
+    private static final int TILE_POINTS = 4096;
+
+    private final ForkJoinPool pool;
+    private final int precision;
+
+    /**
+     * Creates a bulk encoder.
+     *
+     * @param pool      Fork/join pool that runs the slices
+     * @param precision Number of geohash characters (1..12)
+     */
+    public GeoHashBulkEncoder(ForkJoinPool pool, int precision) {
+        if (precision < 1 || precision > GeoHash.MAX_LONG_PRECISION) {
+            throw new IllegalArgumentException("Precision must be between 1 and " + GeoHash.MAX_LONG_PRECISION);
+        }
+        this.pool = pool;
+        this.precision = precision;
+    }
+
+    /**
+     * Encodes in-memory coordinate columns in parallel.
+     *
+     * @param latitudes  Latitude column
+     * @param longitudes Longitude column
+     * @param out        Destination for the packed geohashes
+     */
+    public void encode(double[] latitudes, double[] longitudes, long[] out) {
+        if (longitudes.length != latitudes.length || out.length < latitudes.length) {
+            throw new IllegalArgumentException("Column lengths do not match");
+        }
+        pool.invoke(new ArraySlice(latitudes, longitudes, out, 0, latitudes.length));
+    }
+
+    /**
+     * Encodes buffer-backed coordinate columns (heap, direct or mapped) in parallel.
+     * Positions of the buffers are not modified.
+     *
+     * @param latitudes  Latitude column
+     * @param longitudes Longitude column
+     * @param out        Destination for the packed geohashes
+     */
+    public void encode(DoubleBuffer latitudes, DoubleBuffer longitudes, LongBuffer out) {
+        int n = latitudes.remaining();
+        if (longitudes.remaining() != n || out.remaining() < n) {
+            throw new IllegalArgumentException("Column lengths do not match");
+        }
+        pool.invoke(new BufferSlice(latitudes, longitudes, out, 0, n));
+    }
+
+    /**
+     * Encodes a coordinate file into a packed geohash file, memory-mapping both in slices.
+     *
+     * @param input  File of n latitudes followed by n longitudes (little-endian doubles)
+     * @param output File to create with n packed geohashes (little-endian longs)
+     * @return Number of points encoded
+     */
+    public long encodeFile(Path input, Path output) throws IOException {
+        try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ);
+             RandomAccessFile outFile = new RandomAccessFile(output.toFile(), "rw")) {
+
+            if (in.size() % 16 != 0) {
+                throw new IOException("Coordinate file size is not a multiple of 16 bytes: " + input);
+            }
+            long points = in.size() / 16;
+            outFile.setLength(points * 8);
+
+            try {
+                pool.invoke(new FileSlice(in, outFile.getChannel(), points, 0, points));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            return points;
+        }
+    }
+
+    /**
+     * Fork/join slice over plain arrays.
+     */
+    private class ArraySlice extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final double[] lats, lons;
+        private final long[] out;
+        private final int from, to;
+
+        ArraySlice(double[] lats, double[] lons, long[] out, int from, int to) {
+            this.lats = lats;
+            this.lons = lons;
+            this.out = out;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= LEAF_POINTS) {
+                GeoHash.encode(lats, lons, from, to, precision, out);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new ArraySlice(lats, lons, out, from, mid), new ArraySlice(lats, lons, out, mid, to));
+        }
+    }
+
+    /**
+     * Fork/join slice over buffers; leaves copy tiles into arrays and run the array loop.
+     */
+    private class BufferSlice extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final DoubleBuffer lats, lons;
+        private final LongBuffer out;
+        private final int from, to;
+
+        BufferSlice(DoubleBuffer lats, DoubleBuffer lons, LongBuffer out, int from, int to) {
+            this.lats = lats;
+            this.lons = lons;
+            this.out = out;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= LEAF_POINTS) {
+                encodeTiles(slice(lats, from, to), slice(lons, from, to), slice(out, from, to));
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new BufferSlice(lats, lons, out, from, mid), new BufferSlice(lats, lons, out, mid, to));
+        }
+    }
+
+    /**
+     * Fork/join slice over a coordinate file; each leaf maps only its own region.
+     */
+    private class FileSlice extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final FileChannel in, out;
+        private final long points, from, to;
+
+        FileSlice(FileChannel in, FileChannel out, long points, long from, long to) {
+            this.in = in;
+            this.out = out;
+            this.points = points;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= FILE_LEAF_POINTS) {
+                long count = to - from;
+                try {
+                    DoubleBuffer lats = map(in, FileChannel.MapMode.READ_ONLY, from * 8, count * 8).asDoubleBuffer();
+                    DoubleBuffer lons = map(in, FileChannel.MapMode.READ_ONLY, (points + from) * 8, count * 8).asDoubleBuffer();
+                    LongBuffer hashes = map(out, FileChannel.MapMode.READ_WRITE, from * 8, count * 8).asLongBuffer();
+                    encodeTiles(lats, lons, hashes);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return;
+            }
+            long mid = (from + to) >>> 1;
+            invokeAll(new FileSlice(in, out, points, from, mid), new FileSlice(in, out, points, mid, to));
+        }
+    }
+
+    /**
+     * Encodes buffers by copying fixed-size tiles into reusable arrays.
+     */
+    private void encodeTiles(DoubleBuffer lats, DoubleBuffer lons, LongBuffer out) {
+        double[] latTile = new double[TILE_POINTS];
+        double[] lonTile = new double[TILE_POINTS];
+        long[] outTile = new long[TILE_POINTS];
+
+        while (lats.hasRemaining()) {
+            int n = Math.min(TILE_POINTS, lats.remaining());
+            lats.get(latTile, 0, n);
+            lons.get(lonTile, 0, n);
+            GeoHash.encode(latTile, lonTile, 0, n, precision, outTile);
+            out.put(outTile, 0, n);
+        }
+    }
+
+    private static MappedByteBuffer map(FileChannel channel, FileChannel.MapMode mode, long offset, long length)
+            throws IOException {
+        MappedByteBuffer buffer = channel.map(mode, offset, length);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        return buffer;
+    }
+
+    private static DoubleBuffer slice(DoubleBuffer buffer, int from, int to) {
+        DoubleBuffer view = buffer.duplicate();
+        view.position(buffer.position() + from).limit(buffer.position() + to);
+        return view.slice();
+    }
+
+    private static LongBuffer slice(LongBuffer buffer, int from, int to) {
+        LongBuffer view = buffer.duplicate();
+        view.position(buffer.position() + from).limit(buffer.position() + to);
+        return view.slice();
+    }
+
+    /**
+     * Measures encoding throughput for a given parallelism.
+     *
+     * @return Points encoded per second (best of several runs)
+     */
+    public static double measureThroughput(int parallelism, double[] lats, double[] lons, int precision) {
+        long[] out = new long[lats.length];
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            GeoHashBulkEncoder encoder = new GeoHashBulkEncoder(pool, precision);
+            long best = Long.MAX_VALUE;
+            for (int run = 0; run < 5; run++) {
+                long start = System.nanoTime();
+                encoder.encode(lats, lons, out);
+                best = Math.min(best, System.nanoTime() - start);
+            }
+            return lats.length / (best / 1e9);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Demo: throughput report in points/sec by core count.
+     */
+    public static void main(String[] args) {
+        int points = 20_000_000;
+        int precision = 9;
+        Random random = new Random(7);
+        double[] lats = new double[points];
+        double[] lons = new double[points];
+        for (int i = 0; i < points; i++) {
+            lats[i] = random.nextDouble() * 180 - 90;
+            lons[i] = random.nextDouble() * 360 - 180;
+        }
+
+        // Warm up the JIT so the first row is not measuring the interpreter
+        measureThroughput(1, lats, lons, precision);
+
+        System.out.println("Cores | Points/sec      | Points/sec/core");
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int parallelism = 1; ; parallelism = Math.min(parallelism * 2, cores)) {
+            double rate = measureThroughput(parallelism, lats, lons, precision);
+            System.out.printf("%5d | %,15.0f | %,15.0f%n", parallelism, rate, rate / parallelism);
+            if (parallelism == cores) {
+                break;
+            }
+        }
+    }
+}
@@ -0,0 +1,422 @@
+package main.java;
+
+import java.util.*;
+
+/**
+ * Proximity index over points keyed by their geohash.
+ * Points are kept in parallel primitive arrays sorted by their 12-character packed geohash,
+ * so any geohash cell maps to one contiguous run that is found with a binary search.
+ * Radius, bounding-box and k-nearest queries scan only the runs of a small covering cell set
+ * and apply an exact haversine (or box) filter at the end.
+ */
+public class GeoHashIndex {
+
+    // Mean Earth radius in meters
+    public static final double EARTH_RADIUS_METERS = 6_371_008.8;
+
+    // Precision at which points are stored (finest that fits into a long)
+    private static final int STORAGE_PRECISION = GeoHash.MAX_LONG_PRECISION;
+
+    // Upper bound on covering cells per query; more cells = tighter cover, more binary searches
+    private static final int MAX_COVER_CELLS = 16;
+
+    // Parallel point columns, sorted by hash once the index is built
+    private long[] hashes;
+    private long[] ids;
+    private double[] lats;
+    private double[] lons;
+    private int size;
+
+    // Set when points were appended since the last sort
+    private boolean dirty;
+
+    /**
+     * Creates an empty index.
+     *
+     * @param initialCapacity Expected number of points
+     */
+    public GeoHashIndex(int initialCapacity) {
+        int capacity = Math.max(16, initialCapacity);
+        hashes = new long[capacity];
+        ids = new long[capacity];
+        lats = new double[capacity];
+        lons = new double[capacity];
+    }
+
+    /**
+     * Adds a point. The index is re-sorted lazily on the next query.
+     *
+     * @param id        Caller identifier of the point (e.g., driver ID)
+     * @param latitude  Latitude coordinate
+     * @param longitude Longitude coordinate
+     */
+    public void add(long id, double latitude, double longitude) {
+        if (size == hashes.length) {
+            int capacity = size + (size >> 1);
+            hashes = Arrays.copyOf(hashes, capacity);
+            ids = Arrays.copyOf(ids, capacity);
+            lats = Arrays.copyOf(lats, capacity);
+            lons = Arrays.copyOf(lons, capacity);
+        }
+
+        hashes[size] = GeoHash.encodeLong(latitude, longitude, STORAGE_PRECISION);
+        ids[size] = id;
+        lats[size] = latitude;
+        lons[size] = longitude;
+        size++;
+        dirty = true;
+    }
+
+    /**
+     * Removes all points, keeping the allocated arrays.
+     */
+    public void clear() {
+        size = 0;
+        dirty = false;
+    }
+
+    /**
+     * @return Number of indexed points
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Finds all points within a radius of a location.
+     *
+     * @param latitude     Latitude of the query center
+     * @param longitude    Longitude of the query center
+     * @param radiusMeters Search radius in meters
+     * @return IDs of the matching points, in no particular order
+     */
+    public long[] withinRadius(double latitude, double longitude, double radiusMeters) {
+        ensureSorted();
+        long[] result = new long[16];
+        int found = 0;
+
+        long[] ranges = coverRanges(radiusBox(latitude, longitude, radiusMeters));
+        for (int r = 0; r < ranges.length; r += 2) {
+            for (int i = lowerBound(ranges[r]); i < size && hashes[i] < ranges[r + 1]; i++) {
+                if (distanceMeters(latitude, longitude, lats[i], lons[i]) <= radiusMeters) {
+                    if (found == result.length) {
+                        result = Arrays.copyOf(result, found * 2);
+                    }
+                    result[found++] = ids[i];
+                }
+            }
+        }
+
+        return Arrays.copyOf(result, found);
+    }
+
+    /**
+     * Finds all points inside a bounding box (edges inclusive).
+     * A box with minLon greater than maxLon is treated as crossing the antimeridian.
+     *
+     * @param box Area to search
+     * @return IDs of the matching points, in no particular order
+     */
+    public long[] withinBox(GeoHash.BoundingBox box) {
+        ensureSorted();
+        long[] result = new long[16];
+        int found = 0;
+        boolean wraps = box.minLon > box.maxLon;
+
+        long[] ranges = coverRanges(box);
+        for (int r = 0; r < ranges.length; r += 2) {
+            for (int i = lowerBound(ranges[r]); i < size && hashes[i] < ranges[r + 1]; i++) {
+                double lon = lons[i];
+                boolean lonInside = wraps
+                        ? lon >= box.minLon || lon <= box.maxLon
+                        : lon >= box.minLon && lon <= box.maxLon;
+                if (lonInside && lats[i] >= box.minLat && lats[i] <= box.maxLat) {
+                    if (found == result.length) {
+                        result = Arrays.copyOf(result, found * 2);
+                    }
+                    result[found++] = ids[i];
+                }
+            }
+        }
+
+        return Arrays.copyOf(result, found);
+    }
+
+    /**
+     * Finds the k points closest to a location.
+     * The search radius starts at the size of the smallest geohash cell around the location
+     * that holds at least k points, and doubles until at least k points fall inside it.
+     *
+     * @param latitude  Latitude of the query center
+     * @param longitude Longitude of the query center
+     * @param k         Number of points to return
+     * @return IDs of up to k nearest points, closest first
+     */
+    public long[] kNearest(double latitude, double longitude, int k) {
+        ensureSorted();
+        k = Math.min(k, size);
+        if (k <= 0) {
+            return new long[0];
+        }
+
+        // Bounded max-heap of the k best candidates so far
+        long[] heapIds = new long[k];
+        double[] heapDist = new double[k];
+
+        double maxRadius = Math.PI * EARTH_RADIUS_METERS;
+        double radius = Math.min(maxRadius, initialRadius(latitude, longitude, k));
+
+        while (true) {
+            int count = 0;
+            long[] ranges = coverRanges(radiusBox(latitude, longitude, radius));
+
+            for (int r = 0; r < ranges.length; r += 2) {
+                for (int i = lowerBound(ranges[r]); i < size && hashes[i] < ranges[r + 1]; i++) {
+                    double d = distanceMeters(latitude, longitude, lats[i], lons[i]);
+                    if (d > radius) {
+                        continue;
+                    }
+                    if (count < k) {
+                        heapIds[count] = ids[i];
+                        heapDist[count] = d;
+                        siftUp(heapIds, heapDist, count++);
+                    } else if (d < heapDist[0]) {
+                        heapIds[0] = ids[i];
+                        heapDist[0] = d;
+                        siftDown(heapIds, heapDist, 0, k);
+                    }
+                }
+            }
+
+            // Every point within the radius was seen, so k hits inside it are the true k nearest
+            if (count == k || radius >= maxRadius) {
+                // Heap-sort in place: repeatedly move the farthest to the end
+                for (int end = count - 1; end > 0; end--) {
+                    swap(heapIds, heapDist, 0, end);
+                    siftDown(heapIds, heapDist, 0, end);
+                }
+                return Arrays.copyOf(heapIds, count);
+            }
+            radius = Math.min(maxRadius, radius * 2);
+        }
+    }
+
+    /**
+     * Diagonal of the finest cell containing the location that holds at least k points.
+     */
+    private double initialRadius(double latitude, double longitude, int k) {
+        double[] bounds = new double[4];
+        for (int precision = STORAGE_PRECISION; precision >= 1; precision--) {
+            long cell = GeoHash.encodeLong(latitude, longitude, precision);
+            int shift = 5 * (STORAGE_PRECISION - precision);
+            if (lowerBound((cell + 1) << shift) - lowerBound(cell << shift) >= k) {
+                GeoHash.decodeBounds(cell, precision, bounds);
+                return Math.max(1.0, distanceMeters(bounds[0], bounds[2], bounds[1], bounds[3]));
+            }
+        }
+        return Math.PI * EARTH_RADIUS_METERS;
+    }
+
+    /**
+     * Great-circle distance between two points using the haversine formula.
+     *
+     * @return Distance in meters
+     */
+    public static double distanceMeters(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double sinLat = Math.sin(dLat / 2);
+        double sinLon = Math.sin(dLon / 2);
+        double a = sinLat * sinLat
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * sinLon * sinLon;
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+
+    /**
+     * Smallest lat/lon box that contains every point within a radius of the center.
+     */
+    private static GeoHash.BoundingBox radiusBox(double latitude, double longitude, double radiusMeters) {
+        double angular = radiusMeters / EARTH_RADIUS_METERS;
+        double dLat = Math.toDegrees(angular);
+        double minLat = latitude - dLat;
+        double maxLat = latitude + dLat;
+
+        // Circle reaches a pole or the far side of the globe: all longitudes qualify
+        if (minLat <= -90.0 || maxLat >= 90.0 || angular >= Math.PI / 2) {
+            return new GeoHash.BoundingBox(Math.max(-90.0, minLat), Math.min(90.0, maxLat), -180.0, 180.0);
+        }
+
+        double sinRatio = Math.sin(angular) / Math.cos(Math.toRadians(latitude));
+        if (sinRatio >= 1.0) {
+            return new GeoHash.BoundingBox(minLat, maxLat, -180.0, 180.0);
+        }
+
+        double dLon = Math.toDegrees(Math.asin(sinRatio));
+        double minLon = longitude - dLon;
+        double maxLon = longitude + dLon;
+        if (minLon < -180.0) {
+            minLon += 360.0; // Crosses the antimeridian: minLon > maxLon
+        }
+        if (maxLon > 180.0) {
+            maxLon -= 360.0;
+        }
+        return new GeoHash.BoundingBox(minLat, maxLat, minLon, maxLon);
+    }
+
+    /**
+     * Turns a bounding box into merged [start, end) runs of storage-precision hashes.
+     *
+     * @return Flattened pairs of range bounds
+     */
+    private static long[] coverRanges(GeoHash.BoundingBox box) {
+        int precision = GeoHash.coveringPrecision(box, MAX_COVER_CELLS);
+        long[] cells = GeoHash.coveringCells(box, precision);
+        int shift = 5 * (STORAGE_PRECISION - precision);
+
+        long[] ranges = new long[cells.length * 2];
+        int n = 0;
+        for (long cell : cells) {
+            long start = cell << shift;
+            long end = (cell + 1) << shift;
+            if (n > 0 && ranges[n - 1] == start) {
+                ranges[n - 1] = end; // Adjacent in curve order: extend the previous run
+            } else {
+                ranges[n++] = start;
+                ranges[n++] = end;
+            }
+        }
+        return Arrays.copyOf(ranges, n);
+    }
+
+    /**
+     * Index of the first stored hash that is greater than or equal to the given hash.
+     */
+    private int lowerBound(long hash) {
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (hashes[mid] < hash) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Sorts the point columns by hash if points were added since the last query.
+     */
+    private void ensureSorted() {
+        if (dirty) {
+            quickSort(0, size - 1);
+            dirty = false;
+        }
+    }
+
+    /**
+     * In-place quicksort over the parallel columns, keyed by hash.
+     */
+    private void quickSort(int lo, int hi) {
+        while (hi - lo > 16) {
+            long pivot = hashes[(lo + hi) >>> 1];
+            int i = lo, j = hi;
+            while (i <= j) {
+                while (hashes[i] < pivot) i++;
+                while (hashes[j] > pivot) j--;
+                if (i <= j) {
+                    swapPoints(i++, j--);
+                }
+            }
+            // Recurse into the smaller half, loop on the larger one
+            if (j - lo < hi - i) {
+                quickSort(lo, j);
+                lo = i;
+            } else {
+                quickSort(i, hi);
+                hi = j;
+            }
+        }
+
+        // Insertion sort for short runs
+        for (int i = lo + 1; i <= hi; i++) {
+            for (int j = i; j > lo && hashes[j - 1] > hashes[j]; j--) {
+                swapPoints(j - 1, j);
+            }
+        }
+    }
+
+    private void swapPoints(int a, int b) {
+        long h = hashes[a]; hashes[a] = hashes[b]; hashes[b] = h;
+        long id = ids[a]; ids[a] = ids[b]; ids[b] = id;
+        double lat = lats[a]; lats[a] = lats[b]; lats[b] = lat;
+        double lon = lons[a]; lons[a] = lons[b]; lons[b] = lon;
+    }
+
+    private static void siftUp(long[] heapIds, double[] heapDist, int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heapDist[parent] >= heapDist[i]) {
+                return;
+            }
+            swap(heapIds, heapDist, parent, i);
+            i = parent;
+        }
+    }
+
+    private static void siftDown(long[] heapIds, double[] heapDist, int i, int n) {
+        while (true) {
+            int largest = i;
+            int left = 2 * i + 1, right = left + 1;
+            if (left < n && heapDist[left] > heapDist[largest]) largest = left;
+            if (right < n && heapDist[right] > heapDist[largest]) largest = right;
+            if (largest == i) {
+                return;
+            }
+            swap(heapIds, heapDist, i, largest);
+            i = largest;
+        }
+    }
+
+    private static void swap(long[] heapIds, double[] heapDist, int a, int b) {
+        long id = heapIds[a]; heapIds[a] = heapIds[b]; heapIds[b] = id;
+        double d = heapDist[a]; heapDist[a] = heapDist[b]; heapDist[b] = d;
+    }
+
+    /**
+     * Demo: index random driver positions around San Francisco and query them.
+     */
+    public static void main(String[] args) {
+        Random random = new Random(42);
+        int drivers = 1_000_000;
+        GeoHashIndex index = new GeoHashIndex(drivers);
+
+        for (int i = 0; i < drivers; i++) {
+            double lat = 37.5 + random.nextDouble() * 0.6;
+            double lon = -122.6 + random.nextDouble() * 0.6;
+            index.add(i, lat, lon);
+        }
+
+        double lat = 37.7749, lon = -122.4194;
+
+        long start = System.nanoTime();
+        long[] nearby = index.withinRadius(lat, lon, 200);
+        long radiusNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        long[] nearest = index.kNearest(lat, lon, 5);
+        long knnNanos = System.nanoTime() - start;
+
+        System.out.printf("Drivers within 200 m: %d (%.3f ms, includes first-query sort)%n", nearby.length, radiusNanos / 1e6);
+        System.out.printf("5 nearest drivers: %s (%.3f ms)%n", Arrays.toString(nearest), knnNanos / 1e6);
+
+        long[] cell = new long[8];
+        long hash = GeoHash.encodeLong(lat, lon, 6);
+        GeoHash.neighbours(hash, 6, cell);
+        System.out.print("Neighbours of " + GeoHash.toBase32(hash, 6) + ":");
+        for (long n : cell) {
+            System.out.print(" " + (n < 0 ? "-" : GeoHash.toBase32(n, 6)));
+        }
+        System.out.println();
+    }
+}
@@ -0,0 +1,85 @@
+package main.java;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * {@link TokenCoordinator} held in memory, for tests and simulations.
+ * Every tenant gets a token bucket with the same capacity and refill rate, kept as in
+ * {@link AtomicTokenBucket}: one AtomicLong holding the virtual time at which the bucket was
+ * last empty. Leasing n tokens moves that time forward by n token intervals, giving them back
+ * moves it back; refill beyond capacity is clamped on the next lease.
+ */
+public class InProcessTokenCoordinator implements TokenCoordinator {
+
+    private final long nanosPerToken;    // Refill interval of a single token
+    private final long fullWindowNanos;  // Time to refill an empty bucket
+    private final LongSupplier clock;    // Nanosecond time source
+    private final Map<String, AtomicLong> emptyAt = new ConcurrentHashMap<>();
+    private final LongAdder calls = new LongAdder();
+
+    /**
+     * Creates a coordinator on the system clock.
+     *
+     * @param capacity            Global burst per tenant
+     * @param refillRatePerSecond Global tokens per second per tenant
+     */
+    public InProcessTokenCoordinator(int capacity, int refillRatePerSecond) {
+        this(capacity, refillRatePerSecond, System::nanoTime);
+    }
+
+    /**
+     * Creates a coordinator on a custom clock (e.g., simulated time).
+     *
+     * @param capacity            Global burst per tenant
+     * @param refillRatePerSecond Global tokens per second per tenant
+     * @param clock               Nanosecond time source
+     */
+    public InProcessTokenCoordinator(int capacity, int refillRatePerSecond, LongSupplier clock) {
+        if (capacity <= 0 || refillRatePerSecond <= 0) {
+            throw new IllegalArgumentException("Capacity and refill rate must be positive");
+        }
+        this.nanosPerToken = Math.max(1, Math.round(1_000_000_000.0 / refillRatePerSecond));
+        this.fullWindowNanos = capacity * nanosPerToken;
+        this.clock = clock;
+    }
+
+    @Override
+    public long lease(String tenant, long tokens) {
+        calls.increment();
+        AtomicLong state = bucket(tenant);
+        while (true) {
+            long current = state.get();
+            long now = clock.getAsLong();
+            long start = Math.max(current, now - fullWindowNanos);
+            long granted = Math.min(tokens, Math.max(0, (now - start) / nanosPerToken));
+            if (granted == 0) {
+                return 0;
+            }
+            if (state.compareAndSet(current, start + granted * nanosPerToken)) {
+                return granted;
+            }
+        }
+    }
+
+    @Override
+    public void giveBack(String tenant, long tokens) {
+        calls.increment();
+        bucket(tenant).addAndGet(-tokens * nanosPerToken);
+    }
+
+    private AtomicLong bucket(String tenant) {
+        // New tenants start with a full bucket
+        return emptyAt.computeIfAbsent(tenant, t -> new AtomicLong(clock.getAsLong() - fullWindowNanos));
+    }
+
+    /**
+     * @return Number of lease and give-back calls served so far
+     */
+    public long calls() {
+        return calls.sum();
+    }
+}
@@ -0,0 +1,119 @@
+package main.java;
+
+import java.util.*;
+
+/**
+ * Jump Consistent Hash (Lamping and Veach) for numbered shards.
+ * Needs no lookup table at all: a key is mapped to a bucket in [0, n) with O(log n) arithmetic,
+ * and growing from n to n + 1 buckets moves exactly the keys that land in the new bucket.
+ *
+ * Buckets are numbered, so only the last node can leave without remapping other shards.
+ * Removing any other node moves the last node into its bucket.
+ *
+ * @param <T> The type of the node (e.g., shard name)
+ */
+public class JumpConsistentHash<T> implements Router<T> {
+
+    // Hash function applied to keys before jumping
+    private final ConsistentHash.HashFunction hashFunction;
+
+    // Current bucket -> node table, replaced copy-on-write on membership change
+    private volatile Object[] buckets = new Object[0];
+
+    /**
+     * Constructor to create a jump hash router.
+     *
+     * @param hashFunction Hash function to generate consistent keys
+     * @param nodes        Initial nodes, numbered in iteration order
+     */
+    public JumpConsistentHash(ConsistentHash.HashFunction hashFunction, Collection<T> nodes) {
+        this.hashFunction = hashFunction;
+        addAll(nodes);
+    }
+
+    public T get(Object key) {
+        return bucket(ConsistentHash.hashKey(hashFunction, key));
+    }
+
+    public T get(long key) {
+        return bucket(hashFunction.hash64(key));
+    }
+
+    /**
+     * Appends a node as the highest-numbered bucket.
+     */
+    public void add(T node) {
+        addAll(Collections.singletonList(node));
+    }
+
+    public synchronized void addAll(Collection<T> nodes) {
+        List<Object> next = new ArrayList<>(Arrays.asList(buckets));
+        for (T node : nodes) {
+            if (!next.contains(node)) {
+                next.add(node);
+            }
+        }
+        buckets = next.toArray();
+    }
+
+    /**
+     * Removes a node. If it is not the last bucket, the last node takes over its bucket number.
+     */
+    public void remove(T node) {
+        removeAll(Collections.singletonList(node));
+    }
+
+    public synchronized void removeAll(Collection<T> nodes) {
+        List<Object> next = new ArrayList<>(Arrays.asList(buckets));
+        for (T node : nodes) {
+            int index = next.indexOf(node);
+            if (index >= 0) {
+                Object last = next.remove(next.size() - 1);
+                if (index < next.size()) {
+                    next.set(index, last);
+                }
+            }
+        }
+        buckets = next.toArray();
+    }
+
+    public long footprintBytes() {
+        return 16 + 8L * buckets.length;
+    }
+
+    /**
+     * Maps a 64-bit key to a bucket in [0, numBuckets).
+     *
+     * @param key        Hashed key
+     * @param numBuckets Number of buckets
+     * @return Bucket number
+     */
+    public static int jump(long key, int numBuckets) {
+        long b = -1, j = 0;
+        while (j < numBuckets) {
+            b = j;
+            key = key * 2862933555777941757L + 1;
+            j = (long) ((b + 1) * ((double) (1L << 31) / (double) ((key >>> 33) + 1)));
+        }
+        return (int) b;
+    }
+
+    @SuppressWarnings("unchecked")
+    private T bucket(long hash) {
+        Object[] current = buckets;
+        return current.length == 0 ? null : (T) current[jump(hash, current.length)];
+    }
+
+    /**
+     * Sample demo usage of JumpConsistentHash.
+     */
+    public static void main(String[] args) {
+        List<String> shards = Arrays.asList("shard-0", "shard-1", "shard-2");
+        JumpConsistentHash<String> jump = new JumpConsistentHash<>(new ConsistentHash.XxHash64HashFunction(), shards);
+
+        System.out.println("user 42 => " + jump.get(42L));
+        double moved = Router.disruption(jump, 100_000, r -> r.add("shard-3"));
+        System.out.printf("Adding shard-3 moved %.2f%% of keys (ideal 25%%)%n", 100 * moved);
+        System.out.println("user 42 => " + jump.get(42L));
+    }
+}
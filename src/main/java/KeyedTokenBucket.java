@@ -0,0 +1,231 @@
+package main.java;
+
+import java.util.Random;
+
+/**
+ * Token bucket per key (client, API key, IP) for millions of keys without per-key objects.
+ *
+ * Each key's bucket is one long: the virtual time at which it was last empty, exactly as in
+ * {@link AtomicTokenBucket}. Keys are reduced to a 64-bit xxHash fingerprint and stored with
+ * their state in open-addressing tables of parallel long arrays, split into independently
+ * locked stripes so threads rarely contend.
+ *
+ * A bucket that has refilled completely is indistinguishable from a missing one, so idle keys
+ * are dropped lazily: whenever a stripe fills up, its full buckets are swept out before it grows.
+ * Distinct keys colliding on all 64 fingerprint bits would share a bucket; at 20M keys the
+ * chance of any such pair is about 1 in 100,000.
+ */
+public class KeyedTokenBucket {
+
+    // Open-addressing load factor at which a stripe sweeps idle buckets or grows
+    private static final double MAX_LOAD = 0.75;
+
+    // Slots per stripe right after creation or after sweeping
+    private static final int MIN_STRIPE_SLOTS = 16;
+
+    private final int capacity;          // Max tokens per bucket
+    private final long nanosPerToken;    // Refill interval of a single token
+    private final long fullWindowNanos;  // Time to refill an empty bucket
+    private final Stripe[] stripes;
+    private final int stripeMask;
+
+    /**
+     * Creates a keyed limiter.
+     *
+     * @param capacity            Maximum number of tokens per key
+     * @param refillRatePerSecond Tokens added per second per key
+     */
+    public KeyedTokenBucket(int capacity, int refillRatePerSecond) {
+        if (capacity <= 0 || refillRatePerSecond <= 0) {
+            throw new IllegalArgumentException("Capacity and refill rate must be positive");
+        }
+        this.capacity = capacity;
+        this.nanosPerToken = Math.max(1, Math.round(1_000_000_000.0 / refillRatePerSecond));
+        this.fullWindowNanos = capacity * nanosPerToken;
+
+        // Power-of-two stripe count comfortably above the core count
+        int count = Integer.highestOneBit(Math.max(16, Runtime.getRuntime().availableProcessors() * 8) - 1) << 1;
+        this.stripes = new Stripe[count];
+        this.stripeMask = count - 1;
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * Attempts to take one token from the bucket of a string key.
+     *
+     * @param key Client identifier
+     * @return true if the request is allowed, false if rate limited
+     */
+    public boolean tryAcquire(CharSequence key) {
+        return tryAcquireFingerprint(XxHash64.hash(key, 0));
+    }
+
+    /**
+     * Attempts to take one token from the bucket of a numeric key.
+     *
+     * @param key Client identifier
+     * @return true if the request is allowed, false if rate limited
+     */
+    public boolean tryAcquire(long key) {
+        return tryAcquireFingerprint(XxHash64.hash(key, 0));
+    }
+
+    private boolean tryAcquireFingerprint(long fingerprint) {
+        if (fingerprint == 0) {
+            fingerprint = 1; // 0 marks an empty slot
+        }
+        long now = System.nanoTime();
+        return stripes[(int) (fingerprint >>> 32) & stripeMask].tryAcquire(fingerprint, now);
+    }
+
+    /**
+     * @return Number of keys currently tracked (buckets not yet swept out)
+     */
+    public long size() {
+        long size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return Bytes held by all stripe tables
+     */
+    public long memoryBytes() {
+        long bytes = 16L + 4L * stripes.length;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                // Object header + fields, then two long[] arrays with their headers
+                bytes += 24 + 2 * (16 + 8L * stripe.fingerprints.length);
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * @return Average bytes per tracked key
+     */
+    public double bytesPerKey() {
+        long size = size();
+        return size == 0 ? 0 : (double) memoryBytes() / size;
+    }
+
+    /**
+     * @return Maximum tokens per key
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * One independently locked open-addressing table of (fingerprint, emptyAt) pairs.
+     */
+    private final class Stripe {
+        long[] fingerprints = new long[MIN_STRIPE_SLOTS];
+        long[] emptyAt = new long[MIN_STRIPE_SLOTS];
+        int size;
+
+        synchronized boolean tryAcquire(long fingerprint, long now) {
+            int mask = fingerprints.length - 1;
+            int slot = (int) fingerprint & mask;
+
+            while (true) {
+                long current = fingerprints[slot];
+                if (current == fingerprint) {
+                    long next = Math.max(emptyAt[slot], now - fullWindowNanos) + nanosPerToken;
+                    if (next - now > 0) {
+                        return false;
+                    }
+                    emptyAt[slot] = next;
+                    return true;
+                }
+                if (current == 0) {
+                    break;
+                }
+                slot = (slot + 1) & mask;
+            }
+
+            // Unknown key: its bucket is full, take the first token
+            if (size + 1 > fingerprints.length * MAX_LOAD) {
+                rebuild(now);
+                mask = fingerprints.length - 1;
+                slot = (int) fingerprint & mask;
+                while (fingerprints[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+            }
+            fingerprints[slot] = fingerprint;
+            emptyAt[slot] = now - fullWindowNanos + nanosPerToken;
+            size++;
+            return true;
+        }
+
+        /**
+         * Drops buckets that have refilled completely and re-sizes the table for the rest.
+         */
+        private void rebuild(long now) {
+            long fullBefore = now - fullWindowNanos;
+            int live = 0;
+            for (int i = 0; i < fingerprints.length; i++) {
+                if (fingerprints[i] != 0 && emptyAt[i] - fullBefore > 0) {
+                    live++;
+                }
+            }
+
+            // Keep the table at most half full after the rebuild
+            int slots = Math.max(MIN_STRIPE_SLOTS, Integer.highestOneBit(Math.max(1, (live + 1) * 2 - 1)) << 1);
+            long[] newFingerprints = new long[slots];
+            long[] newEmptyAt = new long[slots];
+            int mask = slots - 1;
+
+            for (int i = 0; i < fingerprints.length; i++) {
+                if (fingerprints[i] != 0 && emptyAt[i] - fullBefore > 0) {
+                    int slot = (int) fingerprints[i] & mask;
+                    while (newFingerprints[slot] != 0) {
+                        slot = (slot + 1) & mask;
+                    }
+                    newFingerprints[slot] = fingerprints[i];
+                    newEmptyAt[slot] = emptyAt[i];
+                }
+            }
+
+            fingerprints = newFingerprints;
+            emptyAt = newEmptyAt;
+            size = live;
+        }
+    }
+
+    /**
+     * Demo: throughput and memory per key as the number of distinct keys grows.
+     */
+    public static void main(String[] args) {
+        int maxKeys = args.length > 0 ? Integer.parseInt(args[0]) : 4_000_000;
+        Random random = new Random(11);
+
+        System.out.println("Keys       | Tracked    | Bytes/key | Decisions/sec | Allowed");
+        for (int keys = 1_000; keys <= maxKeys; keys *= 10) {
+            KeyedTokenBucket limiter = new KeyedTokenBucket(10, 1);
+
+            // Populate every key once, then measure random access across the whole key set
+            for (int key = 0; key < keys; key++) {
+                limiter.tryAcquire(key);
+            }
+            int ops = 5_000_000;
+            long allowed = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < ops; i++) {
+                if (limiter.tryAcquire(random.nextInt(keys))) {
+                    allowed++;
+                }
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%,10d | %,10d | %9.1f | %,13.0f | %6.1f%%%n", keys, limiter.size(),
+                    limiter.bytesPerKey(), ops / seconds, 100.0 * allowed / ops);
+        }
+    }
+}
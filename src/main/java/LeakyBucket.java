@@ -2,7 +2,7 @@ package main.java;
 
 import java.util.concurrent.atomic.AtomicInteger;
 
-public class LeakyBucket {
+public class LeakyBucket implements RateLimiter {
 
     private final int capacity;             // Max bucket size
     private final int leakRatePerSecond;    // Leak rate (tokens/requests per second)
@@ -19,6 +19,7 @@ public class LeakyBucket {
      * Tries to allow a request into the bucket.
      * @return true if request is accepted, false if rejected (bucket overflowed)
      */
+    @Override
     public synchronized boolean allowRequest() {
         leak(); // First leak the bucket based on elapsed time
 
@@ -0,0 +1,153 @@
+package main.java;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * One node's share of a global per-tenant token bucket.
+ * Requests are served from a local lease of tokens taken from a {@link TokenCoordinator};
+ * the coordinator is only called when the lease runs out, so a request normally costs a
+ * local CAS instead of a network round trip.
+ *
+ * Lease sizes adapt to local demand: each new lease is sized to last about targetLeaseMillis
+ * at the rate the previous one was spent, between minChunk and maxChunk. Tokens held longer
+ * than that are given back by {@link #expireLease()} so idle nodes do not hoard the limit.
+ * When the coordinator grants nothing, requests are rejected locally for retryMillis before
+ * it is asked again.
+ */
+public class LeasingRateLimiter implements RateLimiter {
+
+    private final String tenant;
+    private final TokenCoordinator coordinator;
+    private final int minChunk;
+    private final int maxChunk;
+    private final long targetLeaseNanos;
+    private final long retryNanos;
+    private final LongSupplier clock;
+
+    // Unspent leased tokens, taken by the lock-free fast path
+    private final AtomicLong localTokens = new AtomicLong();
+
+    // Lease bookkeeping, guarded by this
+    private long chunk;            // Size of the next lease request
+    private long leasedAt;         // When the current lease was granted
+    private long leasedTokens;     // Size of the current lease
+    private long retryAt;          // No coordinator call before this time after a denial
+
+    /**
+     * Creates a leasing limiter on the system clock.
+     *
+     * @param tenant            Tenant whose global limit applies
+     * @param coordinator       Source of tokens
+     * @param minChunk          Smallest lease requested
+     * @param maxChunk          Largest lease requested
+     * @param targetLeaseMillis How long a lease should last at the current local rate
+     * @param retryMillis       Local back-off after the coordinator granted nothing
+     */
+    public LeasingRateLimiter(String tenant, TokenCoordinator coordinator, int minChunk, int maxChunk,
+                              long targetLeaseMillis, long retryMillis) {
+        this(tenant, coordinator, minChunk, maxChunk, targetLeaseMillis, retryMillis, System::nanoTime);
+    }
+
+    /**
+     * Creates a leasing limiter on a custom clock (e.g., simulated time).
+     *
+     * @param clock Nanosecond time source
+     */
+    public LeasingRateLimiter(String tenant, TokenCoordinator coordinator, int minChunk, int maxChunk,
+                              long targetLeaseMillis, long retryMillis, LongSupplier clock) {
+        if (minChunk <= 0 || maxChunk < minChunk) {
+            throw new IllegalArgumentException("Chunk sizes must satisfy 0 < minChunk <= maxChunk");
+        }
+        this.tenant = tenant;
+        this.coordinator = coordinator;
+        this.minChunk = minChunk;
+        this.maxChunk = maxChunk;
+        this.targetLeaseNanos = targetLeaseMillis * 1_000_000;
+        this.retryNanos = retryMillis * 1_000_000;
+        this.clock = clock;
+        this.chunk = minChunk;
+        this.retryAt = clock.getAsLong();
+    }
+
+    /**
+     * Attempts to admit one request against the global limit.
+     *
+     * @return true if request is allowed, false if rate limited
+     */
+    @Override
+    public boolean allowRequest() {
+        while (true) {
+            long tokens = localTokens.get();
+            if (tokens == 0) {
+                return renewLease();
+            }
+            if (localTokens.compareAndSet(tokens, tokens - 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Slow path: the local lease is spent, fetch the next one and take a token from it.
+     */
+    private synchronized boolean renewLease() {
+        if (localTokens.get() > 0) {
+            return allowRequest(); // Another thread renewed the lease meanwhile
+        }
+        long now = clock.getAsLong();
+        if (now - retryAt < 0) {
+            return false; // Global bucket was empty moments ago
+        }
+
+        // Size the lease to last targetLeaseNanos at the rate the previous one was spent
+        if (leasedTokens > 0) {
+            long spentNanos = Math.max(1, now - leasedAt);
+            double perNano = (double) leasedTokens / spentNanos;
+            chunk = Math.max(minChunk, Math.min(maxChunk, Math.round(perNano * targetLeaseNanos)));
+        }
+
+        long granted = coordinator.lease(tenant, chunk);
+        leasedAt = now;
+        leasedTokens = granted;
+        if (granted == 0) {
+            retryAt = now + retryNanos;
+            return false;
+        }
+        localTokens.set(granted - 1); // One token goes to this request
+        return true;
+    }
+
+    /**
+     * Gives back the unspent tokens of a lease older than the target lease duration.
+     * Call it periodically (e.g., from a scheduler) so idle nodes release their share.
+     */
+    public synchronized void expireLease() {
+        if (leasedTokens > 0 && clock.getAsLong() - leasedAt > targetLeaseNanos) {
+            giveBackAll();
+            chunk = minChunk; // Demand dropped off, start small again
+        }
+    }
+
+    /**
+     * Gives back all unspent tokens, e.g., on shutdown.
+     */
+    public synchronized void close() {
+        giveBackAll();
+    }
+
+    private void giveBackAll() {
+        long unused = localTokens.getAndSet(0);
+        if (unused > 0) {
+            coordinator.giveBack(tenant, unused);
+        }
+        leasedTokens = 0;
+    }
+
+    /**
+     * @return Unspent tokens held by this node
+     */
+    public long localTokens() {
+        return localTokens.get();
+    }
+}
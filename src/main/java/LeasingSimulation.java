@@ -0,0 +1,129 @@
+package main.java;
+
+import java.util.*;
+
+/**
+ * Simulation harness for {@link LeasingRateLimiter}: many gateway nodes share one tenant limit
+ * through an {@link InProcessTokenCoordinator} on a simulated clock, under skewed, bursty traffic.
+ *
+ * For each lease configuration it reports coordinator calls per second, the admitted rate
+ * relative to a single central bucket deciding every request, and the worst one-second
+ * over-admission above the configured limit.
+ */
+public class LeasingSimulation {
+
+    private static final long TICK_NANOS = 1_000_000;        // Simulated time step: 1 ms
+    private static final long EXPIRE_EVERY_TICKS = 50;       // expireLease() period per node
+
+    /**
+     * Result of one simulation run.
+     */
+    public static class Result {
+        public final double coordinatorCallsPerSecond;
+        public final double admittedPerSecond;
+        public final double worstSecondOverLimit;   // Max over seconds of (admitted - limit) / limit
+
+        Result(double coordinatorCallsPerSecond, double admittedPerSecond, double worstSecondOverLimit) {
+            this.coordinatorCallsPerSecond = coordinatorCallsPerSecond;
+            this.admittedPerSecond = admittedPerSecond;
+            this.worstSecondOverLimit = worstSecondOverLimit;
+        }
+    }
+
+    /**
+     * Runs nodes against a shared coordinator with the same seeded traffic for every call.
+     *
+     * @param nodes          Number of gateway nodes
+     * @param limitPerSecond Global tenant limit (the bucket capacity is a tenth of it)
+     * @param offeredPerSecond Total requests per second across all nodes
+     * @param seconds        Simulated duration
+     * @param minChunk       Smallest lease (1 with maxChunk 1 means one coordinator call per request)
+     * @param maxChunk       Largest lease
+     * @param targetLeaseMillis How long a lease should last
+     * @param retryMillis    Local back-off after a denied lease
+     * @return Measured calls, admission rate and over-admission
+     */
+    public static Result run(int nodes, int limitPerSecond, int offeredPerSecond, int seconds,
+                             int minChunk, int maxChunk, long targetLeaseMillis, long retryMillis) {
+        long[] now = {0};
+        InProcessTokenCoordinator coordinator =
+                new InProcessTokenCoordinator(limitPerSecond / 10, limitPerSecond, () -> now[0]);
+        LeasingRateLimiter[] limiters = new LeasingRateLimiter[nodes];
+        for (int i = 0; i < nodes; i++) {
+            limiters[i] = new LeasingRateLimiter("tenant", coordinator, minChunk, maxChunk,
+                    targetLeaseMillis, retryMillis, () -> now[0]);
+        }
+
+        // Node i gets a share proportional to i + 1 (skewed load balancer)
+        double[] perTick = new double[nodes];
+        double weights = nodes * (nodes + 1) / 2.0;
+        for (int i = 0; i < nodes; i++) {
+            perTick[i] = offeredPerSecond * (i + 1) / weights * TICK_NANOS / 1e9;
+        }
+
+        Random random = new Random(14);
+        long ticksPerSecond = 1_000_000_000 / TICK_NANOS;
+        long[] admittedPerSecond = new long[seconds];
+        for (long tick = 0; tick < seconds * ticksPerSecond; tick++) {
+            now[0] = tick * TICK_NANOS;
+
+            // Every 100 ms a random node gets an extra 100 ms worth of its traffic within 1 ms
+            int burstNode = tick % 100 == 0 ? random.nextInt(nodes) : -1;
+            for (int i = 0; i < nodes; i++) {
+                double expected = perTick[i] * (i == burstNode ? 101 : 1);
+                long arrivals = (long) expected + (random.nextDouble() < expected - (long) expected ? 1 : 0);
+                for (long r = 0; r < arrivals; r++) {
+                    if (limiters[i].allowRequest()) {
+                        admittedPerSecond[(int) (tick / ticksPerSecond)]++;
+                    }
+                }
+                if (tick % EXPIRE_EVERY_TICKS == i % EXPIRE_EVERY_TICKS) {
+                    limiters[i].expireLease();
+                }
+            }
+        }
+
+        long admitted = 0;
+        double worst = Double.NEGATIVE_INFINITY;
+        for (int s = 0; s < seconds; s++) {
+            admitted += admittedPerSecond[s];
+            if (s > 0) { // Second 0 includes the initial burst allowance
+                worst = Math.max(worst, (admittedPerSecond[s] - limitPerSecond) / (double) limitPerSecond);
+            }
+        }
+        return new Result(coordinator.calls() / (double) seconds, admitted / (double) seconds, worst);
+    }
+
+    /**
+     * Demo: 40 gateways sharing a 10,000 requests/sec tenant limit, below the limit and in 2x overload.
+     */
+    public static void main(String[] args) {
+        int nodes = 40, limit = 10_000, seconds = 20;
+
+        // {minChunk, maxChunk, targetLeaseMillis, retryMillis}
+        Map<String, int[]> configs = new LinkedHashMap<>();
+        configs.put("Central (1 call/request)", new int[]{1, 1, 100, 0});
+        configs.put("Fixed lease 10", new int[]{10, 10, 100, 5});
+        configs.put("Fixed lease 100", new int[]{100, 100, 100, 5});
+        configs.put("Adaptive 1-500, 50 ms", new int[]{1, 500, 50, 5});
+        configs.put("Adaptive 1-500, 200 ms", new int[]{1, 500, 200, 5});
+
+        for (int offered : new int[]{8_000, 20_000}) {
+            Result central = null;
+            System.out.printf("%d nodes, limit %,d/s, offered %,d/s (skewed, bursty)%n", nodes, limit, offered);
+            System.out.println("Config                   | Coordinator calls/s | Admitted/s | vs central | Worst second over limit");
+            for (Map.Entry<String, int[]> config : configs.entrySet()) {
+                int[] c = config.getValue();
+                Result result = run(nodes, limit, offered, seconds, c[0], c[1], c[2], c[3]);
+                if (central == null) {
+                    central = result;
+                }
+                System.out.printf("%-24s | %,19.0f | %,10.0f | %+9.2f%% | %+22.2f%%%n", config.getKey(),
+                        result.coordinatorCallsPerSecond, result.admittedPerSecond,
+                        100 * (result.admittedPerSecond - central.admittedPerSecond) / central.admittedPerSecond,
+                        100 * result.worstSecondOverLimit);
+            }
+            System.out.println();
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package main.java;
+
+import java.util.*;
+
+/**
+ * Maglev consistent hashing: a precomputed lookup table with O(1) lookups.
+ * Every node fills table slots in the order of its own permutation (offset + j * skip mod M),
+ * taking turns, so each node owns almost exactly M / n slots and a membership change
+ * moves only slightly more than the ideal 1 / n of keys.
+ *
+ * @param <T> The type of the node (e.g., backend name)
+ */
+public class MaglevHash<T> implements Router<T> {
+
+    // Default table size: a prime comfortably larger than 100 x the expected node count
+    public static final int DEFAULT_TABLE_SIZE = 65537;
+
+    // Hash function for keys and node permutations
+    private final ConsistentHash.HashFunction hashFunction;
+
+    // Number of table slots (prime)
+    private final int tableSize;
+
+    // Writer-side membership in join order (guarded by this)
+    private final Set<T> members = new LinkedHashSet<>();
+
+    // Current lookup table snapshot, replaced on membership change
+    private volatile Table table = new Table(new int[0], new Object[0]);
+
+    /**
+     * Constructor to create a Maglev router.
+     *
+     * @param hashFunction Hash function to generate consistent keys
+     * @param tableSize    Number of lookup table slots; must be prime
+     * @param nodes        Initial nodes
+     */
+    public MaglevHash(ConsistentHash.HashFunction hashFunction, int tableSize, Collection<T> nodes) {
+        if (tableSize < 2 || !java.math.BigInteger.valueOf(tableSize).isProbablePrime(30)) {
+            throw new IllegalArgumentException("Table size must be prime: " + tableSize);
+        }
+        this.hashFunction = hashFunction;
+        this.tableSize = tableSize;
+        addAll(nodes);
+    }
+
+    public T get(Object key) {
+        return lookup(ConsistentHash.hashKey(hashFunction, key));
+    }
+
+    public T get(long key) {
+        return lookup(hashFunction.hash64(key));
+    }
+
+    public void add(T node) {
+        addAll(Collections.singletonList(node));
+    }
+
+    public synchronized void addAll(Collection<T> nodes) {
+        if (members.addAll(nodes)) {
+            table = populate();
+        }
+    }
+
+    public void remove(T node) {
+        removeAll(Collections.singletonList(node));
+    }
+
+    public synchronized void removeAll(Collection<T> nodes) {
+        if (members.removeAll(nodes)) {
+            table = populate();
+        }
+    }
+
+    public long footprintBytes() {
+        Table current = table;
+        return 16 + 4L * current.slots.length + 16 + 8L * current.nodes.length;
+    }
+
+    @SuppressWarnings("unchecked")
+    private T lookup(long hash) {
+        Table current = table;
+        if (current.nodes.length == 0) {
+            return null;
+        }
+        return (T) current.nodes[current.slots[(int) Math.floorMod(hash, (long) tableSize)]];
+    }
+
+    /**
+     * Builds the lookup table: nodes take turns claiming the next free slot of their permutation.
+     */
+    private Table populate() {
+        Object[] nodes = members.toArray();
+        int n = nodes.length;
+        int[] slots = new int[n == 0 ? 0 : tableSize];
+        if (n == 0) {
+            return new Table(slots, nodes);
+        }
+
+        long[] offset = new long[n];
+        long[] skip = new long[n];
+        long[] next = new long[n];
+        for (int i = 0; i < n; i++) {
+            offset[i] = Math.floorMod(hashFunction.replicaHash64(nodes[i], 0), (long) tableSize);
+            skip[i] = Math.floorMod(hashFunction.replicaHash64(nodes[i], 1), (long) (tableSize - 1)) + 1;
+        }
+
+        Arrays.fill(slots, -1);
+        int filled = 0;
+        while (true) {
+            for (int i = 0; i < n; i++) {
+                int slot = (int) ((offset[i] + next[i] * skip[i]) % tableSize);
+                while (slots[slot] >= 0) {
+                    next[i]++;
+                    slot = (int) ((offset[i] + next[i] * skip[i]) % tableSize);
+                }
+                slots[slot] = i;
+                next[i]++;
+                if (++filled == tableSize) {
+                    return new Table(slots, nodes);
+                }
+            }
+        }
+    }
+
+    /**
+     * Immutable lookup table snapshot: slot -> index into nodes.
+     */
+    private static final class Table {
+        final int[] slots;
+        final Object[] nodes;
+
+        Table(int[] slots, Object[] nodes) {
+            this.slots = slots;
+            this.nodes = nodes;
+        }
+    }
+
+    /**
+     * Sample demo usage of MaglevHash.
+     */
+    public static void main(String[] args) {
+        List<String> backends = Arrays.asList("backend-a", "backend-b", "backend-c", "backend-d");
+        MaglevHash<String> maglev = new MaglevHash<>(new ConsistentHash.XxHash64HashFunction(), DEFAULT_TABLE_SIZE, backends);
+
+        System.out.println("session-17 => " + maglev.get("session-17"));
+        double moved = Router.disruption(maglev, 100_000, r -> r.remove("backend-b"));
+        System.out.printf("Removing backend-b moved %.2f%% of keys (ideal 25%%)%n", 100 * moved);
+        System.out.println("session-17 => " + maglev.get("session-17"));
+    }
+}
@@ -0,0 +1,393 @@
+package main.java;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Read-only trie served straight from a memory-mapped file.
+ *
+ * {@link #write} freezes a word set into a minimized automaton (a DAWG: an FST without
+ * outputs), in which equal suffix subtrees are stored once, and saves it in a versioned
+ * binary format. {@link #open} maps the file and answers queries directly from the mapped
+ * bytes: nothing is deserialized, so opening takes milliseconds regardless of size, and all
+ * JVMs on a host share one copy of the dictionary through the OS page cache.
+ *
+ * File layout (big-endian):
+ *   header: int magic "TRIE", int version, int wordCount, int nodeCount, int rootOffset
+ *   nodes:  int (arcCount << 1 | terminal), then arcCount arcs of (char label, int targetOffset)
+ *           sorted by label. Children are written before their parents.
+ */
+public class MappedTrie {
+
+    private static final int MAGIC = 0x54524945; // "TRIE"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 20;
+    private static final int ARC_BYTES = 6;
+
+    private final MappedByteBuffer buffer;
+    private final int wordCount;
+    private final int nodeCount;
+    private final int root;
+
+    private MappedTrie(MappedByteBuffer buffer) {
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("Not a trie file");
+        }
+        int version = buffer.getInt(4);
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported trie file version " + version);
+        }
+        this.buffer = buffer;
+        this.wordCount = buffer.getInt(8);
+        this.nodeCount = buffer.getInt(12);
+        this.root = buffer.getInt(16);
+    }
+
+    /**
+     * Maps a trie file written by {@link #write}.
+     *
+     * @param file The trie file
+     * @return Read-only trie backed by the mapping
+     */
+    public static MappedTrie open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            return new MappedTrie(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Freezes the words of a Trie into a trie file.
+     *
+     * @param trie The trie to freeze
+     * @param file Destination file (overwritten)
+     */
+    public static void write(Trie trie, Path file) throws IOException {
+        List<String> words = new ArrayList<>();
+        trie.forEachWord(words::add);
+        write(words, file);
+    }
+
+    /**
+     * Builds a minimized trie file from words in any order (duplicates are ignored).
+     *
+     * @param words The dictionary
+     * @param file  Destination file (overwritten)
+     */
+    public static void write(Collection<String> words, Path file) throws IOException {
+        String[] sorted = words.toArray(new String[0]);
+        Arrays.sort(sorted);
+
+        Builder builder = new Builder();
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || !sorted[i].equals(sorted[i - 1])) {
+                builder.add(sorted[i]);
+            }
+        }
+        builder.finish();
+        sorted = null;
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.position(HEADER_BYTES);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+            int rootOffset = builder.writeState(builder.root, out);
+            out.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(VERSION).putInt(builder.wordCount).putInt(builder.written).putInt(rootOffset);
+            header.flip();
+            channel.write(header, 0);
+        }
+    }
+
+    /**
+     * Searches for a full word.
+     *
+     * @param word The word to search
+     * @return True if the word exists, false otherwise
+     */
+    public boolean search(String word) {
+        int node = findNode(word);
+        return node >= 0 && (buffer.getInt(node) & 1) != 0;
+    }
+
+    /**
+     * Checks if any word starts with the given prefix.
+     *
+     * @param prefix The prefix to check
+     * @return True if at least one word starts with the prefix
+     */
+    public boolean startsWith(String prefix) {
+        return findNode(prefix) >= 0;
+    }
+
+    /**
+     * Visits the words starting with a prefix in sorted order.
+     *
+     * @param prefix  The prefix to enumerate
+     * @param visitor Receives each matching word
+     */
+    public void forEachWithPrefix(String prefix, Consumer<String> visitor) {
+        int node = findNode(prefix);
+        if (node >= 0) {
+            collect(node, new StringBuilder(prefix), visitor);
+        }
+    }
+
+    private void collect(int node, StringBuilder path, Consumer<String> visitor) {
+        int header = buffer.getInt(node);
+        if ((header & 1) != 0) {
+            visitor.accept(path.toString());
+        }
+        int arcs = header >>> 1;
+        for (int i = 0; i < arcs; i++) {
+            int arc = node + 4 + i * ARC_BYTES;
+            path.append(buffer.getChar(arc));
+            collect(buffer.getInt(arc + 2), path, visitor);
+            path.setLength(path.length() - 1);
+        }
+    }
+
+    /**
+     * @return Offset of the node reached by s, or -1 if the path breaks
+     */
+    private int findNode(String s) {
+        int node = root;
+        for (int i = 0; i < s.length(); i++) {
+            char ch = s.charAt(i);
+
+            // Binary search over the node's fixed-size arcs
+            int lo = 0, hi = (buffer.getInt(node) >>> 1) - 1, next = -1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                int arc = node + 4 + mid * ARC_BYTES;
+                char label = buffer.getChar(arc);
+                if (label < ch) {
+                    lo = mid + 1;
+                } else if (label > ch) {
+                    hi = mid - 1;
+                } else {
+                    next = buffer.getInt(arc + 2);
+                    break;
+                }
+            }
+            if (next < 0) {
+                return -1;
+            }
+            node = next;
+        }
+        return node;
+    }
+
+    /**
+     * @return Number of words stored
+     */
+    public int size() {
+        return wordCount;
+    }
+
+    /**
+     * @return Number of automaton states (after minimization)
+     */
+    public int nodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * Mutable automaton state used while building. Once registered its arcs never change,
+     * so equality (terminal flag, labels and target identities) is stable.
+     */
+    private static final class State {
+        char[] labels = new char[0];
+        State[] targets = new State[0];
+        boolean terminal;
+        int id;            // Registration number, hashed in place of the target's identity
+        int hash;          // Cached once registered
+        int offset = -1;   // File offset once written
+
+        State lastChild() {
+            return targets.length == 0 ? null : targets[targets.length - 1];
+        }
+
+        void addArc(char label, State target) {
+            labels = Arrays.copyOf(labels, labels.length + 1);
+            targets = Arrays.copyOf(targets, targets.length + 1);
+            labels[labels.length - 1] = label;
+            targets[targets.length - 1] = target;
+        }
+
+        int computeHash() {
+            int h = terminal ? 1 : 0;
+            for (int i = 0; i < labels.length; i++) {
+                h = 31 * (31 * h + labels[i]) + targets[i].id;
+            }
+            return h;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof State)) {
+                return false;
+            }
+            State other = (State) o;
+            if (terminal != other.terminal || !Arrays.equals(labels, other.labels)) {
+                return false;
+            }
+            for (int i = 0; i < targets.length; i++) {
+                if (targets[i] != other.targets[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Incremental minimal automaton construction from sorted input (Daciuk et al.):
+     * when a word diverges from the previous one, the previous word's finished suffix states
+     * are replaced by an equivalent registered state, or registered themselves.
+     */
+    private static final class Builder {
+        final State root = new State();
+        final Map<State, State> register = new HashMap<>();
+        String previous = "";
+        int wordCount;
+        int written;
+
+        void add(String word) {
+            // Walk the prefix shared with the previous word
+            int common = 0;
+            State state = root;
+            while (common < word.length() && common < previous.length()
+                    && word.charAt(common) == previous.charAt(common)) {
+                state = state.lastChild();
+                common++;
+            }
+
+            if (state.targets.length > 0) {
+                replaceOrRegister(state);
+            }
+            for (int i = common; i < word.length(); i++) {
+                State next = new State();
+                state.addArc(word.charAt(i), next);
+                state = next;
+            }
+            state.terminal = true;
+            previous = word;
+            wordCount++;
+        }
+
+        void finish() {
+            if (root.targets.length > 0) {
+                replaceOrRegister(root);
+            }
+            register.clear(); // Only needed during construction
+        }
+
+        private void replaceOrRegister(State state) {
+            State child = state.lastChild();
+            if (child.targets.length > 0) {
+                replaceOrRegister(child);
+            }
+            child.hash = child.computeHash();
+            State existing = register.get(child);
+            if (existing != null) {
+                state.targets[state.targets.length - 1] = existing;
+            } else {
+                child.id = register.size();
+                register.put(child, child);
+            }
+        }
+
+        /**
+         * Writes a state after its children (post-order) and returns its file offset.
+         */
+        int writeState(State state, DataOutputStream out) throws IOException {
+            if (state.offset >= 0) {
+                return state.offset; // Shared suffix, already written
+            }
+            int[] targets = new int[state.targets.length];
+            for (int i = 0; i < targets.length; i++) {
+                targets[i] = writeState(state.targets[i], out);
+            }
+
+            int offset = HEADER_BYTES + out.size();
+            if (out.size() < 0 || offset < 0) {
+                throw new IOException("Trie file exceeds 2 GB");
+            }
+            out.writeInt(state.labels.length << 1 | (state.terminal ? 1 : 0));
+            for (int i = 0; i < targets.length; i++) {
+                out.writeChar(state.labels[i]);
+                out.writeInt(targets[i]);
+            }
+            state.offset = offset;
+            written++;
+            return offset;
+        }
+    }
+
+    /**
+     * Example usage: freeze a dictionary once, then compare startup by replay and by mapping.
+     */
+    public static void main(String[] args) throws IOException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        String[] names = CompactTrie.productNames(count, 18);
+
+        Trie trie = new Trie();
+        long start = System.nanoTime();
+        for (String name : names) {
+            trie.insert(name);
+        }
+        double replayMillis = (System.nanoTime() - start) / 1e6;
+
+        Path file = Files.createTempFile("dictionary", ".trie");
+        start = System.nanoTime();
+        write(trie, file);
+        double freezeMillis = (System.nanoTime() - start) / 1e6;
+        trie = null;
+
+        start = System.nanoTime();
+        MappedTrie mapped = open(file);
+        boolean found = mapped.search(names[0]);
+        double openMillis = (System.nanoTime() - start) / 1e6;
+
+        int missing = 0;
+        for (String name : names) {
+            if (!mapped.search(name)) {
+                missing++;
+            }
+        }
+
+        System.out.printf("Words: %,d, automaton states: %,d, file: %,d bytes (%.1f bytes/word)%n",
+                mapped.size(), mapped.nodeCount(), Files.size(file), (double) Files.size(file) / mapped.size());
+        System.out.printf("Startup by Trie.insert replay: %.0f ms, freeze: %.0f ms, open + first lookup: %.2f ms%n",
+                replayMillis, freezeMillis, openMillis);
+        System.out.println("All words found: " + (found && missing == 0));
+        System.out.println("StartsWith 'kalo': " + mapped.startsWith("kalo") + ", StartsWith 'xyz': " + mapped.startsWith("xyz"));
+
+        List<String> sample = new ArrayList<>();
+        mapped.forEachWithPrefix(names[0].substring(0, 8), word -> {
+            if (sample.size() < 5) {
+                sample.add(word);
+            }
+        });
+        System.out.println("First words with prefix '" + names[0].substring(0, 8) + "': " + sample);
+        Files.delete(file);
+    }
+}
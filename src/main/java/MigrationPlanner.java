@@ -0,0 +1,274 @@
+package main.java;
+
+import java.util.*;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+
+/**
+ * Computes which keys change owner between two states of a {@link ConsistentHash} ring.
+ * The exact list of transferred hash ranges is derived from the two snapshots alone by
+ * merging their sorted points, so no keyspace scan is needed. Individual keys can then be
+ * streamed through {@link #movedKeys} to pick out only the ones that must be migrated.
+ *
+ * Ranges are half-open [start, end) in signed 64-bit ring order. A range that runs to the
+ * top of the hash space has end == Long.MIN_VALUE (the position just past Long.MAX_VALUE).
+ *
+ * @param <T> The type of the node
+ */
+public class MigrationPlanner<T> {
+
+    // Hashes keys exactly as the ring does
+    private final ToLongFunction<Object> keyHasher;
+
+    // Transfers sorted by start, plus their bounds as primitives for binary search
+    private final List<Transfer<T>> transfers;
+    private final long[] starts;
+    private final long[] ends;
+
+    MigrationPlanner(ConsistentHash.Ring<T> before, ConsistentHash.Ring<T> after, ToLongFunction<Object> keyHasher) {
+        this.keyHasher = keyHasher;
+        this.transfers = Collections.unmodifiableList(computeTransfers(before, after));
+
+        starts = new long[transfers.size()];
+        ends = new long[transfers.size()];
+        for (int i = 0; i < starts.length; i++) {
+            starts[i] = transfers.get(i).start;
+            ends[i] = transfers.get(i).end;
+        }
+    }
+
+    /**
+     * @return Hash ranges whose owner changed, sorted by start
+     */
+    public List<Transfer<T>> transfers() {
+        return transfers;
+    }
+
+    /**
+     * @return Fraction of the 64-bit hash space that changed owner
+     */
+    public double movedFraction() {
+        double moved = 0;
+        for (Transfer<T> transfer : transfers) {
+            moved += transfer.width();
+        }
+        return moved / 0x1p64;
+    }
+
+    /**
+     * Filters a key iterator down to the keys that change owner.
+     *
+     * @param keys Keys currently stored under the old ring state
+     * @return Lazy iterator over the moved keys with their old and new owners
+     */
+    public <K> Iterator<KeyMove<K, T>> movedKeys(Iterator<K> keys) {
+        return new Iterator<KeyMove<K, T>>() {
+            private KeyMove<K, T> next = advance();
+
+            private KeyMove<K, T> advance() {
+                while (keys.hasNext()) {
+                    KeyMove<K, T> move = moveOf(keys.next());
+                    if (move != null) {
+                        return move;
+                    }
+                }
+                return null;
+            }
+
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            public KeyMove<K, T> next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                KeyMove<K, T> current = next;
+                next = advance();
+                return current;
+            }
+        };
+    }
+
+    /**
+     * Filters a key stream down to the keys that change owner. Parallel streams are supported,
+     * so independent rebalancing workers can migrate their share of keys concurrently.
+     *
+     * @param keys Keys currently stored under the old ring state
+     * @return Stream of the moved keys with their old and new owners
+     */
+    public <K> Stream<KeyMove<K, T>> movedKeys(Stream<K> keys) {
+        return keys.map(this::moveOf).filter(Objects::nonNull);
+    }
+
+    /**
+     * @return The move for a key, or null if its owner is unchanged
+     */
+    private <K> KeyMove<K, T> moveOf(K key) {
+        int i = transferIndex(keyHasher.applyAsLong(key));
+        if (i < 0) {
+            return null;
+        }
+        Transfer<T> transfer = transfers.get(i);
+        return new KeyMove<>(key, transfer.from, transfer.to);
+    }
+
+    /**
+     * Index of the transfer containing the hash, or -1.
+     */
+    private int transferIndex(long hash) {
+        int lo = 0, hi = starts.length - 1, found = -1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (starts[mid] <= hash) {
+                found = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        if (found < 0) {
+            return -1;
+        }
+        long end = ends[found];
+        return end == Long.MIN_VALUE || hash < end ? found : -1;
+    }
+
+    /**
+     * Walks the merged points of both rings. Between two consecutive merged points the owner
+     * is constant in both rings: it is the owner of the upper point, since a key belongs to the
+     * first point at or after its hash.
+     */
+    private static <T> List<Transfer<T>> computeTransfers(ConsistentHash.Ring<T> before, ConsistentHash.Ring<T> after) {
+        List<Transfer<T>> result = new ArrayList<>();
+        if (before.size() == 0 || after.size() == 0) {
+            return result; // Nothing to move from or to
+        }
+
+        long[] merged = mergePoints(before.points, after.points);
+        T wrapFrom = before.nodeForHash(merged[0]);
+        T wrapTo = after.nodeForHash(merged[0]);
+
+        // Keys below the first point belong to the first point: [MIN, first + 1)
+        addTransfer(result, wrapFrom, wrapTo, Long.MIN_VALUE, merged[0] + 1);
+
+        for (int i = 1; i < merged.length; i++) {
+            addTransfer(result, before.nodeForHash(merged[i]), after.nodeForHash(merged[i]),
+                    merged[i - 1] + 1, merged[i] + 1);
+        }
+
+        // Keys past the last point wrap around to the first point: [last + 1, top of space)
+        long last = merged[merged.length - 1];
+        if (last != Long.MAX_VALUE) {
+            addTransfer(result, wrapFrom, wrapTo, last + 1, Long.MIN_VALUE);
+        }
+        return result;
+    }
+
+    /**
+     * Appends a range if its owner changed, merging it into the previous range when contiguous.
+     */
+    private static <T> void addTransfer(List<Transfer<T>> result, T from, T to, long start, long end) {
+        if (Objects.equals(from, to)) {
+            return;
+        }
+        int last = result.size() - 1;
+        if (last >= 0) {
+            Transfer<T> previous = result.get(last);
+            if (previous.end == start && previous.from.equals(from) && previous.to.equals(to)) {
+                result.set(last, new Transfer<>(from, to, previous.start, end));
+                return;
+            }
+        }
+        result.add(new Transfer<>(from, to, start, end));
+    }
+
+    private static long[] mergePoints(long[] a, long[] b) {
+        long[] merged = new long[a.length + b.length];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length || j < b.length) {
+            long next = j == b.length || (i < a.length && a[i] <= b[j]) ? a[i++] : b[j++];
+            if (n == 0 || merged[n - 1] != next) {
+                merged[n++] = next;
+            }
+        }
+        return Arrays.copyOf(merged, n);
+    }
+
+    /**
+     * A hash range [start, end) that moves from one node to another.
+     */
+    public static class Transfer<T> {
+        public final T from;
+        public final T to;
+        public final long start;
+        public final long end;
+
+        Transfer(T from, T to, long start, long end) {
+            this.from = from;
+            this.to = to;
+            this.start = start;
+            this.end = end;
+        }
+
+        /**
+         * @return Number of hash values in the range
+         */
+        public double width() {
+            double top = end == Long.MIN_VALUE ? 0x1p63 : end; // MIN_VALUE as end stands for 2^63
+            return top - start;
+        }
+
+        @Override
+        public String toString() {
+            return from + " -> " + to + " [" + start + ", " + (end == Long.MIN_VALUE ? "end" : String.valueOf(end)) + ")";
+        }
+    }
+
+    /**
+     * A key that changes owner.
+     */
+    public static class KeyMove<K, T> {
+        public final K key;
+        public final T from;
+        public final T to;
+
+        KeyMove(K key, T from, T to) {
+            this.key = key;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public String toString() {
+            return key + ": " + from + " -> " + to;
+        }
+    }
+
+    /**
+     * Demo: plan the migration caused by adding a node.
+     */
+    public static void main(String[] args) {
+        ConsistentHash<String> ring = new ConsistentHash<>(new ConsistentHash.Murmur3HashFunction(), 4,
+                Arrays.asList("NodeA", "NodeB", "NodeC"));
+
+        ConsistentHash.Ring<String> before = ring.snapshot();
+        ring.add("NodeD");
+        MigrationPlanner<String> plan = ring.planMigration(before);
+
+        System.out.println("Transferred ranges:");
+        for (Transfer<String> transfer : plan.transfers()) {
+            System.out.println("  " + transfer);
+        }
+        System.out.printf("Hash space moved: %.2f%%%n", 100 * plan.movedFraction());
+
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            keys.add("user-" + i);
+        }
+        System.out.println("Moved keys:");
+        for (Iterator<KeyMove<String, String>> it = plan.movedKeys(keys.iterator()); it.hasNext(); ) {
+            System.out.println("  " + it.next());
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package main.java;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * MurmurHash3 (x64, 128-bit variant) over byte arrays, byte buffers, char sequences and longs.
+ * Nothing is allocated per call; char sequences are hashed as their UTF-16LE bytes
+ * and longs as their 8 little-endian bytes, so every input form agrees with the byte[] form.
+ */
+public final class Murmur3 {
+
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+
+    private Murmur3() {
+    }
+
+    /**
+     * Computes the full 128-bit hash of a byte range.
+     *
+     * @param data   Input bytes
+     * @param offset Start of the range
+     * @param length Length of the range
+     * @param seed   Hash seed (only the low 32 bits are used)
+     * @param out    Destination array: [h1, h2]
+     */
+    public static void hash128(byte[] data, int offset, int length, int seed, long[] out) {
+        hash(data, offset, length, seed, out);
+    }
+
+    /**
+     * Computes the first 64 bits of the 128-bit hash of a byte range.
+     */
+    public static long hash64(byte[] data, int offset, int length, int seed) {
+        return hash(data, offset, length, seed, null);
+    }
+
+    /**
+     * The x64_128 hash of a byte range, shared by {@link #hash128} and {@link #hash64}.
+     *
+     * @param out If not null, receives [h1, h2]
+     * @return h1
+     */
+    private static long hash(byte[] data, int offset, int length, int seed, long[] out) {
+        long h1 = seed & 0xffffffffL;
+        long h2 = h1;
+        int blocks = length >>> 4;
+
+        for (int i = 0; i < blocks; i++) {
+            int p = offset + (i << 4);
+            long k1 = getLongLE(data, p);
+            long k2 = getLongLE(data, p + 8);
+
+            h1 ^= mixK1(k1);
+            h1 = Long.rotateLeft(h1, 27) + h2;
+            h1 = h1 * 5 + 0x52dce729;
+
+            h2 ^= mixK2(k2);
+            h2 = Long.rotateLeft(h2, 31) + h1;
+            h2 = h2 * 5 + 0x38495ab5;
+        }
+
+        // Tail: up to 15 remaining bytes, little-endian into k1 (bytes 0-7) and k2 (bytes 8-15)
+        long k1 = 0, k2 = 0;
+        int tail = offset + (blocks << 4);
+        int remaining = length & 15;
+        for (int i = remaining - 1; i >= 8; i--) {
+            k2 = (k2 << 8) | (data[tail + i] & 0xff);
+        }
+        for (int i = Math.min(remaining, 8) - 1; i >= 0; i--) {
+            k1 = (k1 << 8) | (data[tail + i] & 0xff);
+        }
+        h2 ^= mixK2(k2);
+        h1 ^= mixK1(k1);
+
+        return finish(h1, h2, length, out);
+    }
+
+    /**
+     * Computes the first 64 bits of the hash of a buffer's remaining bytes.
+     * The buffer's position is not modified.
+     */
+    public static long hash64(ByteBuffer data, int seed) {
+        if (data.hasArray()) {
+            return hash64(data.array(), data.arrayOffset() + data.position(), data.remaining(), seed);
+        }
+
+        boolean swap = data.order() == ByteOrder.BIG_ENDIAN;
+        int start = data.position();
+        int length = data.remaining();
+        long h1 = seed & 0xffffffffL;
+        long h2 = h1;
+        int blocks = length >>> 4;
+
+        for (int i = 0; i < blocks; i++) {
+            int p = start + (i << 4);
+            long k1 = data.getLong(p);
+            long k2 = data.getLong(p + 8);
+            if (swap) {
+                k1 = Long.reverseBytes(k1);
+                k2 = Long.reverseBytes(k2);
+            }
+
+            h1 ^= mixK1(k1);
+            h1 = Long.rotateLeft(h1, 27) + h2;
+            h1 = h1 * 5 + 0x52dce729;
+
+            h2 ^= mixK2(k2);
+            h2 = Long.rotateLeft(h2, 31) + h1;
+            h2 = h2 * 5 + 0x38495ab5;
+        }
+
+        long k1 = 0, k2 = 0;
+        int tail = start + (blocks << 4);
+        int remaining = length & 15;
+        for (int i = remaining - 1; i >= 8; i--) {
+            k2 = (k2 << 8) | (data.get(tail + i) & 0xff);
+        }
+        for (int i = Math.min(remaining, 8) - 1; i >= 0; i--) {
+            k1 = (k1 << 8) | (data.get(tail + i) & 0xff);
+        }
+        h2 ^= mixK2(k2);
+        h1 ^= mixK1(k1);
+
+        return finish(h1, h2, length, null);
+    }
+
+    /**
+     * Computes the first 64 bits of the hash of a char sequence's UTF-16LE bytes.
+     */
+    public static long hash64(CharSequence data, int seed) {
+        int chars = data.length();
+        long h1 = seed & 0xffffffffL;
+        long h2 = h1;
+        int blocks = chars >>> 3; // 8 chars = 16 bytes per block
+
+        for (int i = 0; i < blocks; i++) {
+            int p = i << 3;
+            h1 ^= mixK1(getLongLE(data, p));
+            h1 = Long.rotateLeft(h1, 27) + h2;
+            h1 = h1 * 5 + 0x52dce729;
+
+            h2 ^= mixK2(getLongLE(data, p + 4));
+            h2 = Long.rotateLeft(h2, 31) + h1;
+            h2 = h2 * 5 + 0x38495ab5;
+        }
+
+        long k1 = 0, k2 = 0;
+        int tail = blocks << 3;
+        int remaining = chars & 7;
+        for (int i = remaining - 1; i >= 4; i--) {
+            k2 = (k2 << 16) | data.charAt(tail + i);
+        }
+        for (int i = Math.min(remaining, 4) - 1; i >= 0; i--) {
+            k1 = (k1 << 16) | data.charAt(tail + i);
+        }
+        h2 ^= mixK2(k2);
+        h1 ^= mixK1(k1);
+
+        return finish(h1, h2, chars * 2, null);
+    }
+
+    /**
+     * Computes the first 64 bits of the hash of a long's 8 little-endian bytes.
+     */
+    public static long hash64(long data, int seed) {
+        long h1 = seed & 0xffffffffL;
+        long h2 = h1;
+        h1 ^= mixK1(data);
+        return finish(h1, h2, 8, null);
+    }
+
+    /**
+     * MurmurHash3 64-bit finalizer: a fast, full-avalanche bit mixer.
+     */
+    public static long fmix64(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+
+    private static long mixK1(long k1) {
+        k1 *= C1;
+        k1 = Long.rotateLeft(k1, 31);
+        return k1 * C2;
+    }
+
+    private static long mixK2(long k2) {
+        k2 *= C2;
+        k2 = Long.rotateLeft(k2, 33);
+        return k2 * C1;
+    }
+
+    /**
+     * Finalization of every input form.
+     *
+     * @param out If not null, receives [h1, h2]
+     * @return h1, the first 64 bits of the hash
+     */
+    private static long finish(long h1, long h2, int length, long[] out) {
+        h1 ^= length;
+        h2 ^= length;
+        h1 += h2;
+        h2 += h1;
+        h1 = fmix64(h1);
+        h2 = fmix64(h2);
+        h1 += h2;
+        if (out != null) {
+            out[0] = h1;
+            out[1] = h2 + h1;
+        }
+        return h1;
+    }
+
+    static long getLongLE(byte[] b, int i) {
+        return (b[i] & 0xffL)
+                | (b[i + 1] & 0xffL) << 8
+                | (b[i + 2] & 0xffL) << 16
+                | (b[i + 3] & 0xffL) << 24
+                | (b[i + 4] & 0xffL) << 32
+                | (b[i + 5] & 0xffL) << 40
+                | (b[i + 6] & 0xffL) << 48
+                | (b[i + 7] & 0xffL) << 56;
+    }
+
+    /**
+     * Reads 4 chars starting at char index i as the little-endian long of their UTF-16LE bytes.
+     */
+    static long getLongLE(CharSequence s, int i) {
+        return s.charAt(i)
+                | (long) s.charAt(i + 1) << 16
+                | (long) s.charAt(i + 2) << 32
+                | (long) s.charAt(i + 3) << 48;
+    }
+
+    /**
+     * Demo: hash a string in each supported input form.
+     */
+    public static void main(String[] args) {
+        String text = "The quick brown fox jumps over the lazy dog";
+        byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+
+        long[] h = new long[2];
+        hash128(utf8, 0, utf8.length, 0, h);
+        System.out.printf("hash128(utf8)     = %016x %016x%n", h[0], h[1]);
+        System.out.printf("hash64(utf8)      = %016x%n", hash64(utf8, 0, utf8.length, 0));
+        ByteBuffer direct = ByteBuffer.allocateDirect(utf8.length);
+        direct.put(utf8);
+        direct.flip();
+        System.out.printf("hash64(buffer)    = %016x%n", hash64(direct, 0));
+
+        byte[] utf16 = text.getBytes(StandardCharsets.UTF_16LE);
+        System.out.printf("hash64(chars)     = %016x%n", hash64(text, 0));
+        System.out.printf("hash64(utf16le)   = %016x%n", hash64(utf16, 0, utf16.length, 0));
+        System.out.printf("hash64(42L)       = %016x%n", hash64(42L, 0));
+    }
+}
@@ -0,0 +1,393 @@
+package main.java;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Multi-core versions of the rsync signature and delta steps for large files.
+ *
+ * Signatures: block signatures are independent, so the block range is split recursively
+ * into block-aligned regions that a fork/join pool hashes into the shared
+ * {@link BlockSignature} arrays.
+ *
+ * Delta: the new file is cut into segments whose rolling match searches run in parallel,
+ * each as if it started a fresh scan at its first byte. The sequential scan is greedy (a match
+ * skips a whole block), so where the previous segment's last match reaches past a boundary the
+ * next segment is rescanned from the end of that match, only until the rescan visits a window
+ * position the segment's own scan also visited; from there both scans are identical and the
+ * segment's remaining matches are kept. The merged result is exactly the sequential one
+ * ({@link RsyncDelta#computeDelta}), so the delta patches with {@link RsyncDelta#patch}.
+ */
+public class ParallelRsync {
+
+    // Bytes of the old file hashed by one task
+    private static final long SIGNATURE_REGION = 8 << 20;
+
+    // Bytes of the new file searched by one task
+    private static final int SEGMENT_SIZE = 4 << 20;
+
+    // Segments in flight per pool thread (bounds memory for very large files)
+    private static final int SEGMENTS_PER_THREAD = 4;
+
+    /**
+     * Computes a file's block signature on a fork/join pool.
+     *
+     * @param file       The (old) file
+     * @param blockSize  Block size in bytes
+     * @param strongHash Strong hash to use
+     * @param pool       Pool that hashes the regions
+     * @return The signature, identical to {@link BlockSignature#compute}
+     */
+    public static BlockSignature computeSignature(Path file, int blockSize, BlockSignature.StrongHash strongHash,
+                                                  ForkJoinPool pool) throws IOException {
+        if (blockSize <= 0 || blockSize > 1 << 30) {
+            throw new IllegalArgumentException("Block size must be between 1 byte and 1 GB");
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            BlockSignature signature = BlockSignature.allocate(channel.size(), blockSize, strongHash);
+            int blocksPerTask = (int) Math.max(1, SIGNATURE_REGION / blockSize);
+            pool.invoke(new HashBlocks(signature, channel, 0, signature.blockCount(), blocksPerTask));
+            return signature;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Hashes blocks [from, to), splitting in halves down to blocksPerTask.
+     */
+    private static final class HashBlocks extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final BlockSignature signature;
+        private final FileChannel channel;
+        private final int from, to, blocksPerTask;
+
+        HashBlocks(BlockSignature signature, FileChannel channel, int from, int to, int blocksPerTask) {
+            this.signature = signature;
+            this.channel = channel;
+            this.from = from;
+            this.to = to;
+            this.blocksPerTask = blocksPerTask;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= blocksPerTask) {
+                try {
+                    signature.hashRange(channel, from, to);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new HashBlocks(signature, channel, from, middle, blocksPerTask),
+                    new HashBlocks(signature, channel, middle, to, blocksPerTask));
+        }
+    }
+
+    /**
+     * Matches found by scanning window positions [from, to) of the new file.
+     */
+    private static final class Matches {
+        final long from;
+        long[] positions = new long[16];
+        int[] blocks = new int[16];
+        int count;
+
+        Matches(long from) {
+            this.from = from;
+        }
+
+        void add(long position, int block) {
+            if (count == positions.length) {
+                positions = Arrays.copyOf(positions, count * 2);
+                blocks = Arrays.copyOf(blocks, count * 2);
+            }
+            positions[count] = position;
+            blocks[count] = block;
+            count++;
+        }
+
+        /**
+         * @return End of the last match, or -1 if there is none
+         */
+        long end(int blockSize) {
+            return count == 0 ? -1 : positions[count - 1] + blockSize;
+        }
+    }
+
+    /**
+     * Read-only state shared by the segment searches.
+     */
+    private static final class Search {
+        final BlockSignature signature;
+        final RsyncDelta.WeakTable table;
+        final FileChannel channel;
+        final long length;
+        final int blockSize, lastBlock;
+        final boolean lastBlockFull;
+
+        Search(BlockSignature signature, FileChannel channel) throws IOException {
+            this.signature = signature;
+            this.table = new RsyncDelta.WeakTable(signature);
+            this.channel = channel;
+            this.length = channel.size();
+            this.blockSize = signature.blockSize();
+            this.lastBlock = signature.blockCount() - 1;
+            this.lastBlockFull = lastBlock >= 0 && signature.blockLength(lastBlock) == blockSize;
+        }
+
+        /**
+         * Greedy rolling search over window positions [from, to), as the sequential scan would do
+         * if it reached position from outside a match.
+         *
+         * @param sync A scan of the same range started earlier; once this scan visits a position
+         *             sync also visited, sync's remaining matches are adopted. May be null.
+         */
+        Matches scan(long from, long to, Matches sync) throws IOException {
+            Matches found = new Matches(from);
+            long windowEnd = Math.min(to, length - blockSize + 1);
+            if (from >= windowEnd) {
+                return found;
+            }
+            byte[] buffer = new byte[(int) (Math.min(windowEnd - 1 + blockSize, length) - from)];
+            readFully(channel, buffer, from);
+            byte[] digest = new byte[signature.strongHash().digestLength];
+
+            int a = 0, b = 0, next = 0;
+            boolean rolling = false;
+            for (long q = from; q < windowEnd; ) {
+                if (sync != null) {
+                    while (next < sync.count && sync.positions[next] + blockSize <= q) {
+                        next++;
+                    }
+                    if (next == sync.count || sync.positions[next] >= q) {
+                        // sync visited q too: from here on both scans are identical
+                        for (int i = next; i < sync.count; i++) {
+                            found.add(sync.positions[i], sync.blocks[i]);
+                        }
+                        return found;
+                    }
+                }
+
+                int pos = (int) (q - from);
+                if (!rolling) {
+                    a = 0;
+                    b = 0;
+                    for (int i = pos; i < pos + blockSize; i++) {
+                        a += buffer[i] & 0xff;
+                        b += a;
+                    }
+                    rolling = true;
+                }
+                int match = RsyncDelta.find(table, signature, (b << 16) | (a & 0xffff), buffer, pos, blockSize, digest);
+                if (match >= 0 && (match != lastBlock || lastBlockFull)) {
+                    found.add(q, match);
+                    q += blockSize;
+                    rolling = false;
+                    continue;
+                }
+                if (q + 1 < windowEnd) {
+                    int outByte = buffer[pos] & 0xff, inByte = buffer[pos + blockSize] & 0xff;
+                    a += inByte - outByte;
+                    b += a - blockSize * outByte;
+                }
+                q++;
+            }
+            return found;
+        }
+    }
+
+    /**
+     * Encodes the new file as a delta against the old file's signature, searching segments
+     * of the new file in parallel.
+     *
+     * @param signature Block signature of the old file
+     * @param modified  The new file
+     * @param delta     Receives the encoded delta
+     * @param pool      Pool that searches the segments
+     * @return Summary of the delta
+     */
+    public static RsyncDelta.Stats computeDelta(BlockSignature signature, Path modified, OutputStream delta,
+                                                ForkJoinPool pool) throws IOException {
+        try (FileChannel channel = FileChannel.open(modified, StandardOpenOption.READ)) {
+            Search search = new Search(signature, channel);
+            RsyncDelta.Encoder out = new RsyncDelta.Encoder(delta, search.blockSize);
+            long length = search.length;
+            long segments = (length + SEGMENT_SIZE - 1) / SEGMENT_SIZE;
+            int inFlight = pool.getParallelism() * SEGMENTS_PER_THREAD;
+
+            Deque<ForkJoinTask<Matches>> pending = new ArrayDeque<>();
+            long submitted = 0, emitted = 0, covered = 0;
+            for (long segment = 0; segment < segments; segment++) {
+                while (submitted < segments && pending.size() < inFlight) {
+                    long from = submitted * SEGMENT_SIZE, to = Math.min(length, from + SEGMENT_SIZE);
+                    pending.add(pool.submit(() -> search.scan(from, to, null)));
+                    submitted++;
+                }
+                Matches matches = join(pending.poll());
+                long to = Math.min(length, (segment + 1) * SEGMENT_SIZE);
+                if (covered > matches.from) {
+                    // The previous match ends inside this segment: redo its start sequentially
+                    matches = search.scan(covered, to, matches);
+                }
+
+                for (int i = 0; i < matches.count; i++) {
+                    emitted = literal(channel, out, emitted, matches.positions[i]);
+                    out.copy(matches.blocks[i]);
+                    emitted += search.blockSize;
+                }
+                covered = Math.max(covered, matches.end(search.blockSize));
+            }
+
+            // The remaining tail can only match the old file's (short) last block
+            long tail = length - emitted;
+            int lastBlock = search.lastBlock;
+            if (tail > 0 && tail < search.blockSize && tail == signature.blockLength(lastBlock)) {
+                byte[] bytes = new byte[(int) tail];
+                readFully(channel, bytes, emitted);
+                if (Rsync.rollingChecksum(bytes, 0, bytes.length) == signature.weak(lastBlock)
+                        && RsyncDelta.matchesStrong(signature, lastBlock, bytes, 0, bytes.length,
+                        new byte[signature.strongHash().digestLength])) {
+                    out.copy(lastBlock);
+                    emitted = length;
+                }
+            }
+            literal(channel, out, emitted, length);
+            return out.finish();
+        }
+    }
+
+    /**
+     * Joins a task, rethrowing the IOException it failed with. Fork/join wraps checked
+     * exceptions, a submitted Callable's twice over, so the whole cause chain is searched.
+     */
+    static <T> T join(ForkJoinTask<T> task) throws IOException {
+        try {
+            return task.join();
+        } catch (RuntimeException e) {
+            for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Sends bytes [from, to) of the new file as literals.
+     *
+     * @return to
+     */
+    private static long literal(FileChannel channel, RsyncDelta.Encoder out, long from, long to) throws IOException {
+        byte[] buffer = new byte[(int) Math.min(1 << 20, to - from)];
+        for (long position = from; position < to; ) {
+            int n = (int) Math.min(buffer.length, to - position);
+            ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, n);
+            while (chunk.hasRemaining()) {
+                if (channel.read(chunk, position + chunk.position()) < 0) {
+                    throw new EOFException("File shrank while computing the delta");
+                }
+            }
+            out.literal(buffer, 0, n);
+            position += n;
+        }
+        return to;
+    }
+
+    private static void readFully(FileChannel channel, byte[] buffer, long position) throws IOException {
+        ByteBuffer target = ByteBuffer.wrap(buffer);
+        while (target.hasRemaining()) {
+            if (channel.read(target, position + target.position()) < 0) {
+                throw new EOFException("File shrank while computing the delta");
+            }
+        }
+    }
+
+    /**
+     * Scaling benchmark: signature and delta throughput by thread count and file size.
+     * The new file is the old one with a few small edits, so most of it matches.
+     */
+    public static void main(String[] args) throws Exception {
+        int[] sizesMb = args.length > 0
+                ? Arrays.stream(args).mapToInt(Integer::parseInt).toArray()
+                : new int[]{64, 256};
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.printf("Available cores: %d, block size: %d, strong hash: MD5%n", cores, Rsync.BLOCK_SIZE);
+        System.out.println("File MB | Threads | Signature MB/s | Delta MB/s | Same as sequential");
+
+        for (int megabytes : sizesMb) {
+            Path original = Files.createTempFile("original", ".bin");
+            Path modified = Files.createTempFile("modified", ".bin");
+            writeFiles(original, modified, megabytes, new Random(megabytes));
+
+            BlockSignature expected = BlockSignature.compute(original, Rsync.BLOCK_SIZE, BlockSignature.StrongHash.MD5);
+            ByteArrayOutputStream sequential = new ByteArrayOutputStream();
+            RsyncDelta.Stats sequentialStats = RsyncDelta.computeDelta(expected, modified.toFile(), sequential);
+
+            for (int threads = 1; threads <= Math.max(cores, 4); threads *= 2) {
+                ForkJoinPool pool = new ForkJoinPool(threads);
+                long start = System.nanoTime();
+                BlockSignature signature = computeSignature(original, Rsync.BLOCK_SIZE, BlockSignature.StrongHash.MD5, pool);
+                double signatureSeconds = (System.nanoTime() - start) / 1e9;
+
+                start = System.nanoTime();
+                ByteArrayOutputStream delta = new ByteArrayOutputStream();
+                RsyncDelta.Stats stats = computeDelta(signature, modified, delta, pool);
+                double deltaSeconds = (System.nanoTime() - start) / 1e9;
+                pool.shutdown();
+
+                boolean same = stats.copiedBlocks == sequentialStats.copiedBlocks
+                        && stats.copyInstructions == sequentialStats.copyInstructions
+                        && stats.literalBytes == sequentialStats.literalBytes;
+                for (int i = 0; i < signature.blockCount() && same; i++) {
+                    same = signature.weak(i) == expected.weak(i);
+                }
+                System.out.printf("%7d | %7d | %14.0f | %10.0f | %s%s%n", megabytes, threads,
+                        megabytes / signatureSeconds, megabytes / deltaSeconds, same,
+                        threads > cores ? " (more threads than cores)" : "");
+            }
+            Files.delete(original);
+            Files.delete(modified);
+        }
+    }
+
+    /**
+     * Writes random old data, and new data with an insertion, a deletion and an overwrite
+     * every 8 MB.
+     */
+    private static void writeFiles(Path original, Path modified, int megabytes, Random random) throws IOException {
+        byte[] chunk = new byte[1 << 20];
+        try (OutputStream old = new BufferedOutputStream(Files.newOutputStream(original));
+             OutputStream updated = new BufferedOutputStream(Files.newOutputStream(modified))) {
+            for (int i = 0; i < megabytes; i++) {
+                random.nextBytes(chunk);
+                old.write(chunk);
+                if (i % 8 == 3) {
+                    updated.write(chunk, 0, 1000);
+                    updated.write("inserted".getBytes("UTF-8"));
+                    updated.write(chunk, 1000, 200_000);
+                    updated.write(chunk, 200_500, 300_000); // 500 bytes deleted
+                    Arrays.fill(chunk, 700_000, 700_100, (byte) 1);
+                    updated.write(chunk, 500_500, chunk.length - 500_500);
+                } else {
+                    updated.write(chunk);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package main.java;
+
+import java.util.Locale;
+
+/**
+ * Common interface of the single-decision rate limiters, so a gateway can switch algorithms
+ * through configuration: {@link TokenBucket}, {@link LeakyBucket}, their lock-free variants
+ * {@link AtomicTokenBucket} and {@link AtomicLeakyBucket}, {@link GcraRateLimiter} and
+ * {@link SlidingWindowRateLimiter}.
+ */
+public interface RateLimiter {
+
+    /**
+     * Decides whether one request may pass now.
+     *
+     * @return true if request is allowed, false if rate limited
+     */
+    boolean allowRequest();
+
+    /**
+     * Creates a limiter by algorithm name.
+     *
+     * @param algorithm     One of token-bucket, atomic-token-bucket, leaky-bucket, atomic-leaky-bucket,
+     *                      gcra or sliding-window (case-insensitive)
+     * @param capacity      Burst size (ignored by sliding-window, whose limit is ratePerSecond per second)
+     * @param ratePerSecond Sustained requests per second
+     * @return The configured limiter
+     */
+    static RateLimiter of(String algorithm, int capacity, int ratePerSecond) {
+        switch (algorithm.toLowerCase(Locale.ROOT)) {
+            case "token-bucket":
+                return new TokenBucket(capacity, ratePerSecond);
+            case "atomic-token-bucket":
+                return new AtomicTokenBucket(capacity, ratePerSecond);
+            case "leaky-bucket":
+                return new LeakyBucket(capacity, ratePerSecond);
+            case "atomic-leaky-bucket":
+                return new AtomicLeakyBucket(capacity, ratePerSecond);
+            case "gcra":
+                return new GcraRateLimiter(capacity, ratePerSecond);
+            case "sliding-window":
+                return new SlidingWindowRateLimiter(ratePerSecond, 1_000);
+            default:
+                throw new IllegalArgumentException("Unknown rate limiting algorithm: " + algorithm);
+        }
+    }
+}
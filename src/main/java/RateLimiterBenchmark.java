@@ -0,0 +1,154 @@
+package main.java;
+
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Rate limiter comparison:
+ * decisions per second at 1 to 128 threads hammering a single shared limiter,
+ * single-thread decision latency, and admission accuracy under bursty load.
+ */
+public class RateLimiterBenchmark {
+
+    // How long each thread-count round runs
+    private static final long ROUND_MILLIS = 300;
+
+    // Bursty load: a burst of BURST_SIZE requests every BURST_PERIOD_MILLIS against a 1,000/s limit
+    private static final int LIMIT_PER_SECOND = 1_000;
+    private static final int BURST_SIZE = 200;
+    private static final long BURST_PERIOD_MILLIS = 50;
+
+    // Consumes decision results so the JIT cannot drop the calls. Each thread counts locally
+    // and adds its total once, so the adder stays out of the measured loop
+    private static final LongAdder sink = new LongAdder();
+
+    /**
+     * Runs threads that call the decision function in a loop for a fixed time.
+     *
+     * @return Decisions per second across all threads
+     */
+    public static double measure(BooleanSupplier decision, int threads, long millis) throws InterruptedException {
+        LongAdder decisions = new LongAdder();
+        CountDownLatch start = new CountDownLatch(1);
+        long[] deadline = new long[1];
+        Thread[] workers = new Thread[threads];
+
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                long count = 0, allowed = 0;
+                while (System.nanoTime() < deadline[0]) {
+                    for (int i = 0; i < 256; i++) {
+                        if (decision.getAsBoolean()) {
+                            allowed++;
+                        }
+                    }
+                    count += 256;
+                }
+                decisions.add(count);
+                sink.add(allowed);
+            });
+            workers[t].start();
+        }
+
+        deadline[0] = System.nanoTime() + millis * 1_000_000;
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return decisions.sum() / (millis / 1000.0);
+    }
+
+    /**
+     * @return Mean nanoseconds per decision on a single uncontended thread
+     */
+    public static double latencyNanos(RateLimiter limiter, int decisions) {
+        long allowed = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < decisions; i++) {
+            if (limiter.allowRequest()) {
+                allowed++;
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        sink.add(allowed);
+        return (double) elapsed / decisions;
+    }
+
+    /**
+     * Fires periodic bursts at a limiter and measures the admitted rate once the initial
+     * burst allowance has been spent.
+     *
+     * @param warmupMillis  Bursts sent before counting starts
+     * @param measureMillis Time over which admissions are counted
+     * @return Admitted requests per second during the measured interval
+     */
+    public static double burstAdmissionRate(RateLimiter limiter, long warmupMillis, long measureMillis)
+            throws InterruptedException {
+        long start = System.nanoTime();
+        long countFrom = start + warmupMillis * 1_000_000;
+        long end = countFrom + measureMillis * 1_000_000;
+        long admitted = 0;
+
+        for (long burst = start; burst < end; burst += BURST_PERIOD_MILLIS * 1_000_000) {
+            long sleep = burst - System.nanoTime();
+            if (sleep > 0) {
+                Thread.sleep(sleep / 1_000_000, (int) (sleep % 1_000_000));
+            }
+            for (int i = 0; i < BURST_SIZE; i++) {
+                if (limiter.allowRequest() && burst >= countFrom) {
+                    admitted++;
+                }
+            }
+        }
+        return admitted / (measureMillis / 1000.0);
+    }
+
+    /**
+     * Prints decisions/sec for every limiter at 1, 2, 4, ... 128 threads, then latency and accuracy.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        String[] algorithms = {"token-bucket", "atomic-token-bucket", "leaky-bucket", "atomic-leaky-bucket",
+                "gcra", "sliding-window"};
+
+        // Large capacity and rate so both accept and reject paths are exercised
+        Map<String, Supplier<BooleanSupplier>> limiters = new LinkedHashMap<>();
+        for (String algorithm : algorithms) {
+            limiters.put(algorithm, () -> RateLimiter.of(algorithm, 1_000, 1_000_000)::allowRequest);
+        }
+
+        System.out.printf("%-28s", "Threads");
+        for (int threads = 1; threads <= 128; threads *= 2) {
+            System.out.printf(" | %8d", threads);
+        }
+        System.out.println("   (million decisions/sec)");
+
+        for (Map.Entry<String, Supplier<BooleanSupplier>> limiter : limiters.entrySet()) {
+            measure(limiter.getValue().get(), 1, ROUND_MILLIS); // Warm-up
+            System.out.printf("%-28s", limiter.getKey());
+            for (int threads = 1; threads <= 128; threads *= 2) {
+                double rate = measure(limiter.getValue().get(), threads, ROUND_MILLIS);
+                System.out.printf(" | %8.2f", rate / 1e6);
+            }
+            System.out.println();
+        }
+
+        System.out.println();
+        System.out.printf("%-28s | ns/decision | Admitted/sec under bursts (limit %,d/s, offered %,d/s)%n",
+                "Algorithm", LIMIT_PER_SECOND, BURST_SIZE * 1000 / BURST_PERIOD_MILLIS);
+        for (String algorithm : algorithms) {
+            latencyNanos(RateLimiter.of(algorithm, 1_000, 1_000_000), 5_000_000); // Warm-up
+            double latency = latencyNanos(RateLimiter.of(algorithm, 1_000, 1_000_000), 5_000_000);
+            double admitted = burstAdmissionRate(RateLimiter.of(algorithm, 100, LIMIT_PER_SECOND), 1_000, 2_000);
+            System.out.printf("%-28s | %11.1f | %,8.0f (%+.1f%%)%n", algorithm, latency, admitted,
+                    100 * (admitted - LIMIT_PER_SECOND) / LIMIT_PER_SECOND);
+        }
+    }
+}
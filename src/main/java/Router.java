@@ -0,0 +1,120 @@
+package main.java;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Common interface of the key-to-node routing engines:
+ * {@link ConsistentHash} (ring, O(log n) lookup), {@link JumpConsistentHash} (no table, O(log n)
+ * arithmetic) and {@link MaglevHash} (precomputed table, O(1) lookup).
+ *
+ * @param <T> The type of the node (e.g., server or cache name)
+ */
+public interface Router<T> {
+
+    /**
+     * @return Node responsible for the key, or null if there are no nodes
+     */
+    T get(Object key);
+
+    /**
+     * @return Node responsible for a numeric key, or null if there are no nodes
+     */
+    T get(long key);
+
+    void add(T node);
+
+    void remove(T node);
+
+    /**
+     * Adds several nodes. Engines override this to rebuild their lookup structure only once.
+     */
+    default void addAll(Collection<T> nodes) {
+        for (T node : nodes) {
+            add(node);
+        }
+    }
+
+    /**
+     * Removes several nodes. Engines override this to rebuild their lookup structure only once.
+     */
+    default void removeAll(Collection<T> nodes) {
+        for (T node : nodes) {
+            remove(node);
+        }
+    }
+
+    /**
+     * @return Approximate bytes held by the lookup structure (excluding the node objects)
+     */
+    long footprintBytes();
+
+    /**
+     * Measures the fraction of keys that change owner when a membership change is applied.
+     * Routes the sample keys 0..sampleKeys-1 before and after the change.
+     *
+     * @param router     Router to change
+     * @param sampleKeys Number of keys to sample
+     * @param change     Membership change to apply (e.g., r -> r.add("NodeD"))
+     * @return Fraction of sampled keys that moved, between 0 and 1
+     */
+    static <T> double disruption(Router<T> router, int sampleKeys, Consumer<Router<T>> change) {
+        Object[] before = new Object[sampleKeys];
+        for (int key = 0; key < sampleKeys; key++) {
+            before[key] = router.get(key);
+        }
+
+        change.accept(router);
+
+        int moved = 0;
+        for (int key = 0; key < sampleKeys; key++) {
+            if (!Objects.equals(before[key], router.get(key))) {
+                moved++;
+            }
+        }
+        return (double) moved / sampleKeys;
+    }
+
+    /**
+     * Demo: compare memory, lookup latency and remapping cost of the engines.
+     */
+    static void main(String[] args) {
+        List<String> nodes = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            nodes.add("cache-" + i);
+        }
+        ConsistentHash.HashFunction hash = new ConsistentHash.XxHash64HashFunction();
+
+        Map<String, Supplier<Router<String>>> engines = new LinkedHashMap<>();
+        engines.put("Ring (200 vnodes)", () -> new ConsistentHash<>(hash, 200, nodes));
+        engines.put("Jump", () -> new JumpConsistentHash<>(hash, nodes));
+        engines.put("Maglev (65537)", () -> new MaglevHash<>(hash, MaglevHash.DEFAULT_TABLE_SIZE, nodes));
+
+        int keys = 200_000;
+        System.out.println("Engine            | Footprint | ns/lookup | Moved on add | Moved on remove");
+        for (Map.Entry<String, Supplier<Router<String>>> engine : engines.entrySet()) {
+            Router<String> router = engine.getValue().get();
+
+            // Warm up, then time numeric-key lookups
+            long sink = 0;
+            for (int round = 0; round < 5; round++) {
+                for (int key = 0; key < keys; key++) {
+                    sink += router.get(key).length();
+                }
+            }
+            long start = System.nanoTime();
+            for (int key = 0; key < keys; key++) {
+                sink += router.get(key).length();
+            }
+            double nsPerLookup = (double) (System.nanoTime() - start) / keys;
+
+            double added = disruption(router, keys, r -> r.add("cache-new"));
+            double removed = disruption(router, keys, r -> r.remove("cache-new"));
+            System.out.printf("%-17s | %7d B | %9.1f | %11.2f%% | %14.2f%%%s%n", engine.getKey(),
+                    router.footprintBytes(), nsPerLookup, 100 * added, 100 * removed, sink == 0 ? " " : "");
+        }
+        System.out.printf("Ideal remapping on add/remove with %d nodes: %.2f%%%n", nodes.size() + 1,
+                100.0 / (nodes.size() + 1));
+    }
+}
@@ -9,7 +9,7 @@ import java.util.*;
  */
 public class Rsync {
 
-    private static final int BLOCK_SIZE = 1024;  // 1KB block size
+    static final int BLOCK_SIZE = 1024;  // 1KB block size
 
     /**
      * Represents a checksum pair: weak (rolling hash) and strong (MD5).
@@ -17,12 +17,18 @@ public class Rsync {
     static class Checksum {
         int weakHash;
         String strongHash;
+        int length = BLOCK_SIZE;  // Bytes in the block (only the last block may be shorter)
 
         public Checksum(int weakHash, String strongHash) {
             this.weakHash = weakHash;
             this.strongHash = strongHash;
         }
 
+        public Checksum(int weakHash, String strongHash, int length) {
+            this(weakHash, strongHash);
+            this.length = length;
+        }
+
         @Override
         public String toString() {
             return "Weak: " + weakHash + ", Strong: " + strongHash;
@@ -38,10 +44,10 @@ public class Rsync {
         try (InputStream in = new FileInputStream(file)) {
             byte[] buffer = new byte[BLOCK_SIZE];
             int read;
-            while ((read = in.read(buffer)) != -1) {
+            while ((read = RsyncDelta.readFully(in, buffer, 0, BLOCK_SIZE)) > 0) {
                 int weak = rollingChecksum(buffer, read);
                 String strong = strongChecksum(buffer, read);
-                checksums.add(new Checksum(weak, strong));
+                checksums.add(new Checksum(weak, strong, read));
             }
         }
 
@@ -53,12 +59,21 @@ public class Rsync {
      * Fast and good enough for initial match.
      */
     public static int rollingChecksum(byte[] block, int length) {
+        return rollingChecksum(block, 0, length);
+    }
+
+    /**
+     * Rolling checksum of block[offset, offset + length).
+     * Both sums are kept modulo 2^16 so the value can be rolled one byte at a time
+     * (see {@link RsyncDelta}).
+     */
+    public static int rollingChecksum(byte[] block, int offset, int length) {
         int a = 0, b = 0;
-        for (int i = 0; i < length; i++) {
+        for (int i = offset; i < offset + length; i++) {
             a += block[i] & 0xff;
             b += a;
         }
-        return (b << 16) | a;
+        return (b << 16) | (a & 0xffff);
     }
 
     /**
@@ -66,8 +81,15 @@ public class Rsync {
      * Confirms true block match.
      */
     public static String strongChecksum(byte[] block, int length) throws Exception {
+        return strongChecksum(block, 0, length);
+    }
+
+    /**
+     * Strong checksum of block[offset, offset + length).
+     */
+    public static String strongChecksum(byte[] block, int offset, int length) throws Exception {
         MessageDigest md = MessageDigest.getInstance("MD5");
-        md.update(block, 0, length);
+        md.update(block, offset, length);
         byte[] digest = md.digest();
         StringBuilder sb = new StringBuilder();
 
@@ -79,20 +101,16 @@ public class Rsync {
     }
 
     /**
-     * Compares blocks between original and modified files and prints changed indexes.
+     * Compares the modified file against the original's block signatures and prints the delta
+     * (blocks found anywhere in the new file are copied, the rest is sent as literal bytes).
      */
     public static void compare(File original, File modified) throws Exception {
         List<Checksum> originalChecksums = computeChecksums(original);
-        List<Checksum> modifiedChecksums = computeChecksums(modified);
+        RsyncDelta.Stats stats = RsyncDelta.computeDelta(originalChecksums, modified, new ByteArrayOutputStream());
 
-        System.out.println("Modified Blocks:");
-
-        for (int i = 0; i < modifiedChecksums.size(); i++) {
-            if (i >= originalChecksums.size() ||
-                    !modifiedChecksums.get(i).strongHash.equals(originalChecksums.get(i).strongHash)) {
-                System.out.println("→ Block " + i + " differs");
-            }
-        }
+        System.out.println("Delta:");
+        System.out.println("→ " + stats.copiedBlocks + " of " + originalChecksums.size() + " blocks reused");
+        System.out.println("→ " + stats.literalBytes + " literal bytes to send");
     }
 
     /**
@@ -0,0 +1,471 @@
+package main.java;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Rsync delta engine: encodes a new file as instructions against the block signatures of
+ * the old file, and rebuilds the new file from the old one plus that delta.
+ *
+ * A window of one block slides over the new file one byte at a time; its weak checksum is
+ * rolled in O(1) per byte and looked up in an open-addressing table of the old blocks' weak
+ * checksums, and candidates are confirmed with the strong checksum. Matching windows become
+ * COPY instructions (consecutive blocks merged into runs), everything in between becomes
+ * LITERAL bytes. An insertion therefore only costs its own bytes, not every later block.
+ *
+ * Delta format (big-endian): int magic "RSD1", int block size, then instructions until END:
+ *   'C' varint firstBlock varint blockCount
+ *   'L' varint length, length bytes
+ *   'E'
+ */
+public class RsyncDelta {
+
+    private static final int MAGIC = 0x52534431; // "RSD1"
+    private static final byte COPY = 'C';
+    private static final byte LITERAL = 'L';
+    private static final byte END = 'E';
+
+    // Bytes of the new file held in memory at a time (besides one block of look-ahead)
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    /**
+     * Summary of an encoded delta.
+     */
+    public static class Stats {
+        public long copiedBlocks;
+        public long copyInstructions;
+        public long literalBytes;
+        public long deltaBytes;
+
+        @Override
+        public String toString() {
+            return String.format("%,d blocks copied in %,d runs, %,d literal bytes, delta %,d bytes",
+                    copiedBlocks, copyInstructions, literalBytes, deltaBytes);
+        }
+    }
+
+    /**
+     * Open-addressing table from weak checksum to block indexes, as in rsync: one slot per
+     * distinct weak checksum, whose blocks are chained through next. Blocks with the same
+     * content (equal length and strong digest) are chained once, since any of them can be
+     * copied; so runs of identical blocks, such as the zero-filled regions of sparse files and
+     * VM images, take a single slot and a single chain entry instead of a long probe cluster.
+     */
+    static final class WeakTable {
+        final int[] keys;
+        final int[] heads;    // First block index + 1 for the slot's checksum; 0 marks an empty slot
+        final int[] next;     // Next block index + 1 with the same checksum; 0 ends the chain
+        final int mask;
+        final int shift;      // Keeps the top log2(slots) bits of the scrambled checksum
+
+        WeakTable(BlockSignature signature) {
+            int slots = Integer.highestOneBit(Math.max(2, signature.blockCount() * 2) - 1) << 1;
+            keys = new int[slots];
+            heads = new int[slots];
+            next = new int[signature.blockCount()];
+            mask = slots - 1;
+            shift = Integer.numberOfLeadingZeros(mask);
+            int[] tails = new int[slots]; // Last block of each chain, to keep chains in block order
+
+            for (int block = 0; block < signature.blockCount(); block++) {
+                int weak = signature.weak(block);
+                int slot = slot(weak);
+                while (heads[slot] != 0 && keys[slot] != weak) {
+                    slot = (slot + 1) & mask;
+                }
+                if (heads[slot] == 0) {
+                    keys[slot] = weak;
+                    heads[slot] = block + 1;
+                    tails[slot] = block + 1;
+                } else if (!chained(signature, heads[slot], block)) {
+                    next[tails[slot] - 1] = block + 1;
+                    tails[slot] = block + 1;
+                }
+            }
+        }
+
+        /**
+         * @return Whether a block with the same content as block is already in the chain
+         */
+        private boolean chained(BlockSignature signature, int head, int block) {
+            for (int other = head; other != 0; other = next[other - 1]) {
+                if (signature.blockLength(other - 1) == signature.blockLength(block)
+                        && signature.strongEquals(other - 1, block)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        int slot(int weak) {
+            return (weak * 0x9E3779B9) >>> shift;
+        }
+
+        /**
+         * @return First block index + 1 with this weak checksum, or 0 if there is none
+         */
+        int head(int weak) {
+            for (int slot = slot(weak); heads[slot] != 0; slot = (slot + 1) & mask) {
+                if (keys[slot] == weak) {
+                    return heads[slot];
+                }
+            }
+            return 0;
+        }
+    }
+
+    /**
+     * Encodes the new file as a delta against the old file's signature.
+     *
+     * @param signature Block checksums of the old file ({@link Rsync#computeChecksums})
+     * @param modified  The new file
+     * @param delta     Receives the encoded delta
+     * @return Summary of the delta
+     */
+    public static Stats computeDelta(List<Rsync.Checksum> signature, File modified, OutputStream delta)
+            throws Exception {
+        return computeDelta(BlockSignature.fromChecksums(signature, Rsync.BLOCK_SIZE), modified, delta);
+    }
+
+    /**
+     * Encodes new data read from a stream as a delta against the old file's signature.
+     */
+    public static Stats computeDelta(List<Rsync.Checksum> signature, InputStream in, OutputStream delta)
+            throws Exception {
+        return computeDelta(BlockSignature.fromChecksums(signature, Rsync.BLOCK_SIZE), in, delta);
+    }
+
+    /**
+     * Encodes the new file as a delta against a binary signature of the old file.
+     *
+     * @param signature Block signature of the old file ({@link BlockSignature#compute}), any block size
+     * @param modified  The new file
+     * @param delta     Receives the encoded delta
+     * @return Summary of the delta
+     */
+    public static Stats computeDelta(BlockSignature signature, File modified, OutputStream delta)
+            throws IOException {
+        try (InputStream in = new FileInputStream(modified)) {
+            return computeDelta(signature, in, delta);
+        }
+    }
+
+    /**
+     * Encodes new data read from a stream as a delta against a binary signature of the old file.
+     */
+    public static Stats computeDelta(BlockSignature signature, InputStream in, OutputStream delta)
+            throws IOException {
+        int blockSize = signature.blockSize();
+        WeakTable table = new WeakTable(signature);
+        Encoder out = new Encoder(delta, blockSize);
+        byte[] digest = new byte[signature.strongHash().digestLength];
+
+        // Size of the old file's last block, which may be short and can only match at the end
+        int lastBlock = signature.blockCount() - 1;
+        int lastBlockLength = lastBlock < 0 ? 0 : signature.blockLength(lastBlock);
+
+        byte[] buffer = new byte[BUFFER_SIZE + blockSize];
+        int limit = readFully(in, buffer, 0, buffer.length);
+        boolean eof = limit < buffer.length;
+        int pos = 0, literalStart = 0;
+        int a = 0, b = 0;
+        boolean rolling = false;   // Whether a, b hold the sums of buffer[pos, pos + blockSize)
+
+        while (true) {
+            // Keep one byte beyond the window available for rolling, refilling when needed
+            if (limit - pos <= blockSize && !eof) {
+                out.literal(buffer, literalStart, pos - literalStart);
+                System.arraycopy(buffer, pos, buffer, 0, limit - pos);
+                limit -= pos;
+                pos = 0;
+                literalStart = 0;
+                int read = readFully(in, buffer, limit, buffer.length - limit);
+                limit += read;
+                eof = limit < buffer.length;
+                continue;
+            }
+            if (limit - pos < blockSize) {
+                break; // Tail shorter than a block
+            }
+
+            if (!rolling) {
+                a = 0;
+                b = 0;
+                for (int i = pos; i < pos + blockSize; i++) {
+                    a += buffer[i] & 0xff;
+                    b += a;
+                }
+                rolling = true;
+            }
+
+            int match = find(table, signature, (b << 16) | (a & 0xffff), buffer, pos, blockSize, digest);
+            if (match >= 0 && (match != lastBlock || lastBlockLength == blockSize)) {
+                out.literal(buffer, literalStart, pos - literalStart);
+                out.copy(match);
+                pos += blockSize;
+                literalStart = pos;
+                rolling = false;
+                continue;
+            }
+
+            if (pos + blockSize == limit) {
+                break; // End of data: nothing to roll in
+            }
+            // Roll the window one byte: drop buffer[pos], take in buffer[pos + blockSize]
+            int outByte = buffer[pos] & 0xff, inByte = buffer[pos + blockSize] & 0xff;
+            a += inByte - outByte;
+            b += a - blockSize * outByte;
+            pos++;
+        }
+
+        // The remaining tail can only match the old file's (short) last block
+        int tail = limit - pos;
+        if (tail > 0 && tail < blockSize && tail == lastBlockLength
+                && Rsync.rollingChecksum(buffer, pos, tail) == signature.weak(lastBlock)
+                && matchesStrong(signature, lastBlock, buffer, pos, tail, digest)) {
+            out.literal(buffer, literalStart, pos - literalStart);
+            out.copy(lastBlock);
+        } else {
+            out.literal(buffer, literalStart, limit - literalStart);
+        }
+        return out.finish();
+    }
+
+    /**
+     * @return Index of an old block equal to buffer[pos, pos + length), or -1
+     */
+    static int find(WeakTable table, BlockSignature signature, int weak,
+                    byte[] buffer, int pos, int length, byte[] digest) {
+        int head = table.head(weak);
+        if (head == 0) {
+            return -1;
+        }
+        // Strong digest computed only if some block has the same weak checksum
+        signature.strongHash().digest(buffer, pos, length, digest, 0);
+        for (int block = head; block != 0; block = table.next[block - 1]) {
+            if (signature.blockLength(block - 1) == length && signature.strongEquals(block - 1, digest, 0)) {
+                return block - 1;
+            }
+        }
+        return -1;
+    }
+
+    static boolean matchesStrong(BlockSignature signature, int block, byte[] buffer, int pos, int length,
+                                 byte[] digest) {
+        signature.strongHash().digest(buffer, pos, length, digest, 0);
+        return signature.strongEquals(block, digest, 0);
+    }
+
+    /**
+     * Rebuilds the new file from the old file and a delta.
+     *
+     * @param original The old file the delta was computed against
+     * @param delta    The encoded delta
+     * @param out      Receives the new file's bytes
+     */
+    public static void patch(File original, InputStream delta, OutputStream out) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(delta));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not an rsync delta");
+        }
+        int blockSize = in.readInt();
+        if (blockSize <= 0) {
+            throw new IOException("Corrupt delta: block size " + blockSize);
+        }
+        byte[] buffer = new byte[Math.max(blockSize, 1 << 16)];
+
+        try (FileChannel old = FileChannel.open(original.toPath(), StandardOpenOption.READ)) {
+            while (true) {
+                byte op = in.readByte();
+                if (op == END) {
+                    break;
+                } else if (op == COPY) {
+                    long first = readVarLong(in), count = readVarLong(in);
+                    long size = old.size(), blocks = (size + blockSize - 1) / blockSize;
+                    if (first < 0 || count <= 0 || first >= blocks || count > blocks - first) {
+                        throw new IOException("Original file is shorter than the delta expects");
+                    }
+                    // Only the original's last block may end before a whole block
+                    long position = first * blockSize;
+                    long end = Math.min(size, (first + count) * blockSize);
+                    while (position < end) {
+                        ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, (int) Math.min(buffer.length, end - position));
+                        while (chunk.hasRemaining()) {
+                            if (old.read(chunk, position + chunk.position()) < 0) {
+                                throw new IOException("Original file is shorter than the delta expects");
+                            }
+                        }
+                        out.write(buffer, 0, chunk.position());
+                        position += chunk.position();
+                    }
+                } else if (op == LITERAL) {
+                    long length = readVarLong(in);
+                    while (length > 0) {
+                        int n = (int) Math.min(buffer.length, length);
+                        in.readFully(buffer, 0, n);
+                        out.write(buffer, 0, n);
+                        length -= n;
+                    }
+                } else {
+                    throw new IOException("Corrupt delta: unknown instruction " + op);
+                }
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * Writes instructions, merging consecutive copies into runs.
+     */
+    static final class Encoder {
+        private final DataOutputStream out;
+        private final Stats stats = new Stats();
+        private long runStart = -1, runLength;
+
+        Encoder(OutputStream delta, int blockSize) throws IOException {
+            this.out = new DataOutputStream(new BufferedOutputStream(delta, 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeInt(blockSize);
+        }
+
+        void copy(int block) throws IOException {
+            if (runStart >= 0 && runStart + runLength == block) {
+                runLength++;
+            } else {
+                flushRun();
+                runStart = block;
+                runLength = 1;
+            }
+            stats.copiedBlocks++;
+        }
+
+        void literal(byte[] data, int offset, int length) throws IOException {
+            if (length == 0) {
+                return;
+            }
+            flushRun();
+            out.writeByte(LITERAL);
+            writeVarLong(out, length);
+            out.write(data, offset, length);
+            stats.literalBytes += length;
+        }
+
+        private void flushRun() throws IOException {
+            if (runStart >= 0) {
+                out.writeByte(COPY);
+                writeVarLong(out, runStart);
+                writeVarLong(out, runLength);
+                stats.copyInstructions++;
+                runStart = -1;
+            }
+        }
+
+        Stats finish() throws IOException {
+            flushRun();
+            out.writeByte(END);
+            out.flush();
+            stats.deltaBytes = out.size();
+            return stats;
+        }
+    }
+
+    static void writeVarLong(DataOutput out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    static long readVarLong(DataInput in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Corrupt delta: varint too long");
+    }
+
+    /**
+     * Reads until the range is full or the stream ends.
+     *
+     * @return Bytes read
+     */
+    static int readFully(InputStream in, byte[] buffer, int offset, int length) throws IOException {
+        int total = 0;
+        while (total < length) {
+            int read = in.read(buffer, offset + total, length - total);
+            if (read < 0) {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
+
+    /**
+     * Demo: a small edit near the start of a 4 MB file costs a few hundred bytes of delta.
+     */
+    public static void main(String[] args) throws Exception {
+        Random random = new Random(20);
+        byte[] data = new byte[4 << 20];
+        random.nextBytes(data);
+
+        // Insert 13 bytes near the start and overwrite 100 bytes in the middle
+        byte[] inserted = "hello, rsync!".getBytes("UTF-8");
+        byte[] edited = new byte[data.length + inserted.length];
+        System.arraycopy(data, 0, edited, 0, 100);
+        System.arraycopy(inserted, 0, edited, 100, inserted.length);
+        System.arraycopy(data, 100, edited, 100 + inserted.length, data.length - 100);
+        Arrays.fill(edited, 2_000_000, 2_000_100, (byte) 7);
+
+        File original = File.createTempFile("original", ".bin");
+        File modified = File.createTempFile("modified", ".bin");
+        Files.write(original.toPath(), data);
+        Files.write(modified.toPath(), edited);
+
+        List<Rsync.Checksum> signature = Rsync.computeChecksums(original);
+        ByteArrayOutputStream delta = new ByteArrayOutputStream();
+        Stats stats = computeDelta(signature, modified, delta);
+        System.out.println("Delta: " + stats);
+
+        ByteArrayOutputStream rebuilt = new ByteArrayOutputStream();
+        patch(original, new ByteArrayInputStream(delta.toByteArray()), rebuilt);
+        System.out.printf("Patched file identical: %s (%,d bytes sent instead of %,d)%n",
+                Arrays.equals(rebuilt.toByteArray(), edited), delta.size(), edited.length);
+
+        // Zero-filled originals (sparse files, VM images): every block shares one weak checksum,
+        // which must not slow down the scan of unrelated data
+        byte[] unrelated = new byte[2 << 20];
+        random.nextBytes(unrelated);
+        Files.write(modified.toPath(), unrelated);
+        for (int megabytes : new int[]{8, 32}) {
+            for (boolean zeros : new boolean[]{false, true}) {
+                byte[] old = new byte[megabytes << 20];
+                if (!zeros) {
+                    random.nextBytes(old);
+                }
+                Files.write(original.toPath(), old);
+                BlockSignature oldSignature = BlockSignature.compute(original.toPath(), Rsync.BLOCK_SIZE,
+                        BlockSignature.StrongHash.MD5);
+                long start = System.nanoTime();
+                computeDelta(oldSignature, modified, new ByteArrayOutputStream());
+                double seconds = (System.nanoTime() - start) / 1e9;
+                System.out.printf("2 MB of random data against a %2d MB %s original: %5.1f MB/s%n",
+                        megabytes, zeros ? "zero-filled" : "random     ", 2 / seconds);
+            }
+        }
+
+        original.delete();
+        modified.delete();
+    }
+}
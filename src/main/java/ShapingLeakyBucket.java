@@ -0,0 +1,267 @@
+package main.java;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Leaky bucket as a traffic shaper: accepted work is queued and released downstream at the
+ * leak rate instead of passing straight through, so microbursts never reach the downstream.
+ *
+ * Producers enqueue into a bounded lock-free ring buffer; a full buffer is an overflowing
+ * bucket and rejects the work. A single drain thread wakes on a fixed tick, earns
+ * leakRatePerSecond * elapsed releases in integer token-nanoseconds, and hands that many items
+ * to the downstream executor, so rates above the tick frequency are released in small batches.
+ */
+public class ShapingLeakyBucket {
+
+    // Finest and coarsest drain tick
+    private static final long MIN_TICK_NANOS = 1_000_000;
+    private static final long MAX_TICK_NANOS = 10_000_000;
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final int leakRatePerSecond;
+    private final Executor downstream;
+    private final RingBuffer queue;
+    private final ScheduledExecutorService drainer;
+
+    // Drain-thread state: unspent release credit in token-nanoseconds, and the last tick time
+    private long credit;
+    private long lastDrainNanos;
+
+    // Metrics
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private volatile long released;
+    private volatile long failed;
+    private volatile long totalWaitNanos;
+    private volatile long maxWaitNanos;
+
+    /**
+     * Creates a shaper and starts its drain thread.
+     *
+     * @param capacity          Max number of queued items (bucket size)
+     * @param leakRatePerSecond Items released downstream per second
+     * @param downstream        Executor that runs released items
+     */
+    public ShapingLeakyBucket(int capacity, int leakRatePerSecond, Executor downstream) {
+        if (capacity <= 0 || leakRatePerSecond <= 0) {
+            throw new IllegalArgumentException("Capacity and leak rate must be positive");
+        }
+        this.leakRatePerSecond = leakRatePerSecond;
+        this.downstream = downstream;
+        this.queue = new RingBuffer(capacity);
+
+        long tick = Math.max(MIN_TICK_NANOS, Math.min(MAX_TICK_NANOS, NANOS_PER_SECOND / leakRatePerSecond));
+        this.drainer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "leaky-bucket-drain");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.lastDrainNanos = System.nanoTime();
+        drainer.scheduleAtFixedRate(this::drain, tick, tick, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Queues a work item for shaped release.
+     *
+     * @param task Work to run downstream
+     * @return true if accepted, false if rejected (bucket overflowed)
+     */
+    public boolean offer(Runnable task) {
+        if (queue.offer(task, System.nanoTime())) {
+            accepted.increment();
+            return true;
+        }
+        rejected.increment();
+        return false;
+    }
+
+    /**
+     * Stops the drain thread. Items still queued are not released.
+     */
+    public void shutdown() {
+        drainer.shutdown();
+    }
+
+    /**
+     * Releases the items earned since the last tick (drain thread only).
+     */
+    private void drain() {
+        long now = System.nanoTime();
+        credit += (now - lastDrainNanos) * leakRatePerSecond;
+        lastDrainNanos = now;
+
+        long releasedNow = 0, failedNow = 0, waitNow = 0, maxWait = maxWaitNanos;
+        while (credit >= NANOS_PER_SECOND) {
+            Runnable task = queue.poll();
+            if (task == null) {
+                // Idle bucket: do not bank credit for a later burst, keep at most one release
+                credit = NANOS_PER_SECOND;
+                break;
+            }
+            credit -= NANOS_PER_SECOND;
+            try {
+                downstream.execute(task);
+            } catch (RuntimeException e) {
+                // An exception escaping this periodic task would cancel every later tick
+                failedNow++;
+                continue;
+            }
+            long wait = now - queue.lastEnqueueNanos;
+            waitNow += wait;
+            maxWait = Math.max(maxWait, wait);
+            releasedNow++;
+        }
+
+        if (releasedNow > 0) {
+            released += releasedNow;
+            totalWaitNanos += waitNow;
+            maxWaitNanos = maxWait;
+        }
+        if (failedNow > 0) {
+            failed += failedNow;
+        }
+    }
+
+    /**
+     * @return Items currently waiting in the bucket
+     */
+    public int queueDepth() {
+        return queue.size();
+    }
+
+    public long acceptedCount() {
+        return accepted.sum();
+    }
+
+    public long rejectedCount() {
+        return rejected.sum();
+    }
+
+    public long releasedCount() {
+        return released;
+    }
+
+    /**
+     * @return Items dropped because the downstream executor refused them (e.g., RejectedExecutionException)
+     */
+    public long failedCount() {
+        return failed;
+    }
+
+    /**
+     * @return Mean time released items spent queued, in nanoseconds
+     */
+    public double averageWaitNanos() {
+        long count = released;
+        return count == 0 ? 0 : (double) totalWaitNanos / count;
+    }
+
+    /**
+     * @return Longest time a released item spent queued, in nanoseconds
+     */
+    public long maxWaitNanos() {
+        return maxWaitNanos;
+    }
+
+    /**
+     * Bounded multi-producer, single-consumer ring buffer (Vyukov-style sequence slots).
+     * Each slot's sequence number tells producers whether it is free for their ticket
+     * and the consumer whether it has been published.
+     */
+    private static final class RingBuffer {
+        private final int capacity;
+        private final int mask;
+        private final AtomicReferenceArray<Runnable> items;
+        private final long[] enqueueNanos;
+        private final AtomicLongArray sequences;
+        private final AtomicLong tail = new AtomicLong();
+        private volatile long head; // Written by the consumer only
+
+        // Enqueue time of the item returned by the last poll (consumer only)
+        long lastEnqueueNanos;
+
+        RingBuffer(int capacity) {
+            int slots = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+            this.capacity = capacity;
+            this.mask = slots - 1;
+            this.items = new AtomicReferenceArray<>(slots);
+            this.enqueueNanos = new long[slots];
+            this.sequences = new AtomicLongArray(slots);
+            for (int i = 0; i < slots; i++) {
+                sequences.set(i, i);
+            }
+        }
+
+        boolean offer(Runnable item, long now) {
+            while (true) {
+                long ticket = tail.get();
+                if (ticket - head >= capacity) {
+                    return false; // Full
+                }
+                int slot = (int) ticket & mask;
+                long sequence = sequences.get(slot);
+                if (sequence == ticket && tail.compareAndSet(ticket, ticket + 1)) {
+                    items.lazySet(slot, item);
+                    enqueueNanos[slot] = now;
+                    sequences.set(slot, ticket + 1); // Publish to the consumer
+                    return true;
+                }
+                if (sequence < ticket) {
+                    return false; // Slot not yet consumed: full
+                }
+            }
+        }
+
+        Runnable poll() {
+            long ticket = head;
+            int slot = (int) ticket & mask;
+            if (sequences.get(slot) != ticket + 1) {
+                return null; // Empty or not yet published
+            }
+            Runnable item = items.get(slot);
+            lastEnqueueNanos = enqueueNanos[slot];
+            items.lazySet(slot, null);
+            sequences.set(slot, ticket + mask + 1); // Free the slot for the next lap
+            head = ticket + 1;
+            return item;
+        }
+
+        int size() {
+            return (int) Math.max(0, tail.get() - head);
+        }
+    }
+
+    /**
+     * Demo: a burst of 50 requests is smoothed to 20 per second.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        ExecutorService database = Executors.newFixedThreadPool(2);
+        ShapingLeakyBucket bucket = new ShapingLeakyBucket(40, 20, database);
+        long start = System.nanoTime();
+
+        for (int i = 1; i <= 50; i++) {
+            int request = i;
+            boolean accepted = bucket.offer(() -> System.out.printf("Request %02d released at %4d ms%n",
+                    request, (System.nanoTime() - start) / 1_000_000));
+            if (!accepted) {
+                System.out.printf("Request %02d: REJECTED (bucket full)%n", request);
+            }
+        }
+
+        while (bucket.queueDepth() > 0) {
+            Thread.sleep(100);
+        }
+        Thread.sleep(100);
+        System.out.printf("Released %d, rejected %d, failed %d, average wait %.0f ms, max wait %.0f ms%n",
+                bucket.releasedCount(), bucket.rejectedCount(), bucket.failedCount(),
+                bucket.averageWaitNanos() / 1e6, bucket.maxWaitNanos() / 1e6);
+
+        bucket.shutdown();
+        database.shutdown();
+    }
+}
@@ -0,0 +1,104 @@
+package main.java;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sliding-window counter limiter: at most limit requests in any window-long interval,
+ * approximated from the counts of the current and the previous fixed window.
+ * The previous window's count is weighted by how much of it still overlaps the sliding window:
+ * estimate = current + previous * (window - elapsedInCurrent) / window.
+ *
+ * The whole state is packed into one long in an AtomicLong, so a decision is a single CAS
+ * with no floating point:
+ *   bits 63..42  window number modulo 2^22
+ *   bits 41..21  previous window count
+ *   bits 20..0   current window count
+ * A limiter left completely idle for exactly a multiple of 2^22 windows would mistake old
+ * counts for recent ones (48 days with one-second windows); any traffic in between resets them.
+ */
+public class SlidingWindowRateLimiter implements RateLimiter {
+
+    private static final int COUNT_BITS = 21;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+    private static final int WINDOW_SHIFT = 2 * COUNT_BITS;
+    private static final long WINDOW_MASK = (1L << (64 - WINDOW_SHIFT)) - 1;
+
+    // Keeps previous * (window - elapsed) below 2^62
+    private static final long MAX_WINDOW_NANOS = 1L << 41;
+
+    private final int limit;            // Max requests per sliding window
+    private final long windowNanos;     // Window length
+    private final long originNanos;     // Start of window number 0
+    private final AtomicLong state;
+
+    /**
+     * Initialize the limiter (starts with no recent requests).
+     *
+     * @param limit        Maximum requests in any sliding window (at most 2^21 - 1)
+     * @param windowMillis Window length in milliseconds (at most about 36 minutes)
+     */
+    public SlidingWindowRateLimiter(int limit, long windowMillis) {
+        if (limit <= 0 || limit > COUNT_MASK) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + COUNT_MASK);
+        }
+        if (windowMillis <= 0 || windowMillis * 1_000_000 > MAX_WINDOW_NANOS) {
+            throw new IllegalArgumentException("Window must be between 1 ms and " + MAX_WINDOW_NANOS / 1_000_000 + " ms");
+        }
+        this.limit = limit;
+        this.windowNanos = windowMillis * 1_000_000;
+        this.originNanos = System.nanoTime();
+        this.state = new AtomicLong();
+    }
+
+    /**
+     * Attempts to admit one request.
+     *
+     * @return true if request is allowed, false if rate limited
+     */
+    @Override
+    public boolean allowRequest() {
+        while (true) {
+            long current = state.get();
+            long sinceOrigin = System.nanoTime() - originNanos;
+            long window = sinceOrigin / windowNanos;
+            long elapsed = sinceOrigin - window * windowNanos;
+
+            long count = current & COUNT_MASK;
+            long previous = (current >>> COUNT_BITS) & COUNT_MASK;
+            long age = (window - (current >>> WINDOW_SHIFT)) & WINDOW_MASK;
+            if (age == 1) {
+                previous = count; // Rolled into the next window
+                count = 0;
+            } else if (age > 1) {
+                previous = 0; // Both windows have slid out
+                count = 0;
+            }
+
+            // count + previous * (window - elapsed) / window < limit, without division
+            if (previous * (windowNanos - elapsed) >= (limit - count) * windowNanos) {
+                return false; // Rejections leave the state alone; the roll-over is recomputed next time
+            }
+            if (state.compareAndSet(current, pack(window, previous, count + 1))) {
+                return true;
+            }
+        }
+    }
+
+    private static long pack(long window, long previous, long count) {
+        return (window & WINDOW_MASK) << WINDOW_SHIFT | previous << COUNT_BITS | count;
+    }
+
+    /**
+     * Test usage of SlidingWindowRateLimiter.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        SlidingWindowRateLimiter limiter = new SlidingWindowRateLimiter(5, 2_000); // 5 requests per 2 s
+
+        for (int i = 1; i <= 15; i++) {
+            boolean allowed = limiter.allowRequest();
+            System.out.printf("Request %02d: %s%n", i, allowed ? "ACCEPTED" : "REJECTED");
+
+            Thread.sleep(300); // 3.3 requests/sec > 2.5 requests/sec, will throttle
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package main.java;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hashed timer wheel: one daemon thread serves any number of pending delays.
+ * Timeouts are hashed into a ring of buckets by their deadline tick; each tick the thread
+ * runs the due entries of one bucket. Scheduling is a lock-free enqueue, and waiting callers
+ * hold no thread at all until their deadline, which suits futures and virtual threads.
+ *
+ * Tasks run on the wheel thread and must be short (e.g., completing a future).
+ */
+public final class TimerWheel {
+
+    private final long tickNanos;
+    private final int mask;
+
+    // Buckets are only touched by the wheel thread
+    private final List<List<Timeout>> buckets;
+
+    // Newly scheduled timeouts, handed over to the wheel thread every tick
+    private final Queue<Timeout> pending = new ConcurrentLinkedQueue<>();
+
+    private final long startNanos = System.nanoTime();
+    private final Thread worker;
+
+    // Timeouts sitting in buckets (wheel thread only)
+    private int active;
+
+    /**
+     * Creates and starts a timer wheel.
+     *
+     * @param tickNanos  Resolution of the wheel
+     * @param wheelSize  Number of buckets (rounded up to a power of two)
+     * @param threadName Name of the daemon thread
+     */
+    public TimerWheel(long tickNanos, int wheelSize, String threadName) {
+        if (tickNanos <= 0 || wheelSize <= 0) {
+            throw new IllegalArgumentException("Tick and wheel size must be positive");
+        }
+        int size = Integer.highestOneBit(Math.max(1, wheelSize - 1)) << 1;
+        this.tickNanos = tickNanos;
+        this.mask = size - 1;
+        this.buckets = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            buckets.add(new ArrayList<>());
+        }
+
+        this.worker = new Thread(this::run, threadName);
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * @return Process-wide wheel with 1 ms resolution
+     */
+    public static TimerWheel shared() {
+        return Shared.INSTANCE;
+    }
+
+    /**
+     * Runs a task once the delay has passed (rounded up to the next tick).
+     *
+     * @param task       Short task to run on the wheel thread
+     * @param delayNanos Delay in nanoseconds
+     */
+    public void schedule(Runnable task, long delayNanos) {
+        long deadline = System.nanoTime() + Math.max(0, delayNanos);
+        pending.add(new Timeout(task, (deadline - startNanos + tickNanos - 1) / tickNanos));
+        LockSupport.unpark(worker); // Wake the wheel if it is idle
+    }
+
+    /**
+     * @return A future completed by the wheel after the delay
+     */
+    public CompletableFuture<Void> delay(long delayNanos) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        if (delayNanos <= 0) {
+            future.complete(null);
+        } else {
+            schedule(() -> future.complete(null), delayNanos);
+        }
+        return future;
+    }
+
+    private void run() {
+        long tick = 0;
+        while (true) {
+            // Idle: sleep until something is scheduled, then catch up with the clock
+            if (active == 0 && pending.isEmpty()) {
+                LockSupport.park(this);
+                tick = Math.max(tick, (System.nanoTime() - startNanos) / tickNanos);
+            }
+
+            long sleep = startNanos + (tick + 1) * tickNanos - System.nanoTime();
+            if (sleep > 0) {
+                LockSupport.parkNanos(this, sleep);
+                if (System.nanoTime() - startNanos < (tick + 1) * tickNanos) {
+                    continue; // Woken early by schedule(): new timeouts are picked up on the next tick
+                }
+            }
+            tick++;
+
+            transferPending(tick);
+            expire(tick);
+        }
+    }
+
+    /**
+     * Moves newly scheduled timeouts into their buckets; overdue ones go into the current tick.
+     */
+    private void transferPending(long tick) {
+        Timeout timeout;
+        while ((timeout = pending.poll()) != null) {
+            long due = Math.max(timeout.deadlineTick, tick);
+            timeout.deadlineTick = due;
+            buckets.get((int) (due & mask)).add(timeout);
+            active++;
+        }
+    }
+
+    /**
+     * Runs the due timeouts of the current tick's bucket, keeping those due in a later round.
+     */
+    private void expire(long tick) {
+        List<Timeout> bucket = buckets.get((int) (tick & mask));
+        int kept = 0;
+        for (int i = 0; i < bucket.size(); i++) {
+            Timeout timeout = bucket.get(i);
+            if (timeout.deadlineTick <= tick) {
+                active--;
+                try {
+                    timeout.task.run();
+                } catch (Throwable t) {
+                    // A failing task must not stop the wheel
+                    worker.getUncaughtExceptionHandler().uncaughtException(worker, t);
+                }
+            } else {
+                bucket.set(kept++, timeout);
+            }
+        }
+        bucket.subList(kept, bucket.size()).clear();
+    }
+
+    private static final class Timeout {
+        final Runnable task;
+        long deadlineTick;
+
+        Timeout(Runnable task, long deadlineTick) {
+            this.task = task;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+
+    private static final class Shared {
+        static final TimerWheel INSTANCE = new TimerWheel(1_000_000, 512, "timer-wheel");
+    }
+
+    /**
+     * Demo: many concurrent delays served by a single thread.
+     */
+    public static void main(String[] args) {
+        TimerWheel wheel = shared();
+        long start = System.nanoTime();
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[100_000];
+        for (int i = 0; i < futures.length; i++) {
+            futures[i] = wheel.delay((i % 100 + 1) * 1_000_000L); // 1..100 ms
+        }
+        CompletableFuture.allOf(futures).join();
+        System.out.printf("%,d delays of up to 100 ms completed after %.1f ms on one thread%n",
+                futures.length, (System.nanoTime() - start) / 1e6);
+    }
+}
@@ -1,6 +1,8 @@
 package main.java;
 
-public class TokenBucket {
+import java.util.concurrent.CompletableFuture;
+
+public class TokenBucket implements RateLimiter {
 
     private final int capacity;              // Max tokens bucket can hold
     private final int refillRatePerSecond;   // Tokens added per second
@@ -25,6 +27,7 @@ public class TokenBucket {
      *
      * @return true if request is allowed, false if rate limited
      */
+    @Override
     public synchronized boolean allowRequest() {
         refill();
 
@@ -36,6 +39,60 @@ public class TokenBucket {
         }
     }
 
+    /**
+     * Attempts to consume several tokens at once (all or nothing).
+     *
+     * @param permits Number of tokens to take
+     * @return true if all permits were taken, false if rate limited
+     */
+    public synchronized boolean tryAcquire(int permits) {
+        checkPermits(permits);
+        refill();
+
+        if (tokens >= permits) {
+            tokens -= permits;
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    /**
+     * Reserves tokens, going into debt if needed, and reports how long the caller must wait.
+     * The reservation is binding: later requests are refused until the debt is refilled.
+     *
+     * @param permits Number of tokens to reserve
+     * @return Nanoseconds until the reserved permits are covered (0 if available now)
+     */
+    public synchronized long reserve(int permits) {
+        checkPermits(permits);
+        refill();
+
+        tokens -= permits;
+        if (tokens >= 0) {
+            return 0;
+        }
+        return (long) Math.ceil(-tokens * 1_000_000_000.0 / refillRatePerSecond);
+    }
+
+    /**
+     * Reserves tokens and returns a future that completes once they are covered.
+     * Waiting callers hold no thread: the shared {@link TimerWheel} completes the future,
+     * so a virtual thread blocking on {@code join()} simply unmounts.
+     *
+     * @param permits Number of tokens to acquire
+     * @return Future completed (on the timer thread) when the permits are available
+     */
+    public CompletableFuture<Void> acquireAsync(int permits) {
+        return TimerWheel.shared().delay(reserve(permits));
+    }
+
+    private static void checkPermits(int permits) {
+        if (permits <= 0) {
+            throw new IllegalArgumentException("Permits must be positive: " + permits);
+        }
+    }
+
     /**
      * Refill the bucket based on the time elapsed.
      */
@@ -62,5 +119,14 @@ public class TokenBucket {
 
             Thread.sleep(300); // 3.3 requests/sec > 2 token/sec → will throttle
         }
+
+        // Batch APIs: take a batch at once, or reserve and wait without busy-retrying
+        System.out.println("tryAcquire(3): " + bucket.tryAcquire(3));
+        System.out.printf("reserve(4): wait %.0f ms%n", bucket.reserve(4) / 1e6);
+
+        long start = System.nanoTime();
+        bucket.acquireAsync(2)
+                .thenRun(() -> System.out.printf("acquireAsync(2) completed after %.0f ms%n", (System.nanoTime() - start) / 1e6))
+                .join();
     }
 }
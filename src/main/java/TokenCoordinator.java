@@ -0,0 +1,28 @@
+package main.java;
+
+/**
+ * Central authority of a global rate limit shared by many nodes (e.g., a Redis script or a
+ * dedicated limiter service). Nodes lease tokens from it in chunks and return the ones they
+ * did not use, so the coordinator is only called once per chunk instead of once per request.
+ *
+ * Implementations must be thread-safe.
+ */
+public interface TokenCoordinator {
+
+    /**
+     * Takes up to the requested number of tokens out of the tenant's global bucket.
+     *
+     * @param tenant Tenant whose limit applies
+     * @param tokens Tokens wanted
+     * @return Tokens granted, between 0 and tokens
+     */
+    long lease(String tenant, long tokens);
+
+    /**
+     * Gives unused leased tokens back to the tenant's global bucket.
+     *
+     * @param tenant Tenant whose limit applies
+     * @param tokens Tokens returned (previously granted by lease)
+     */
+    void giveBack(String tenant, long tokens);
+}
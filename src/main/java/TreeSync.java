@@ -0,0 +1,568 @@
+package main.java;
+
+import java.io.*;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Incremental sync of a whole directory tree, with a persistent signature index.
+ *
+ * The index maps every file's relative path to its metadata at the last sync (size,
+ * modification time, inode) and the block signature of its content at that time, which is
+ * what the replica holds. Each run walks the tree in parallel on a fork/join pool; files whose
+ * metadata is unchanged are skipped without being read. Only changed files are read, once
+ * each and in parallel: the bytes are encoded as a delta against the indexed signature (new
+ * files against an empty one) and re-signed as they stream past, so the new signature always
+ * describes exactly the content the delta gives the replica. The run returns an aggregate change manifest and saves the index.
+ *
+ * Like rsync's default quick check, this trusts metadata: a file rewritten with the same size
+ * and modification time is not detected. Symbolic links are not followed. Keep the index file
+ * and delta directory outside the synced tree.
+ *
+ * Files that vanish during the run are treated as deleted. Files and directories that cannot be
+ * read are listed in the manifest and keep their indexed state, so they are neither reported as
+ * deleted nor lost from the index; the next run retries them.
+ *
+ * Index file layout (big-endian): int magic "TIDX", int version, int entryCount, then per
+ * entry: UTF path, long size, long mtime (ns), UTF inode key, signature in the
+ * {@link BlockSignature} file format.
+ */
+public class TreeSync {
+
+    private static final int MAGIC = 0x54494458; // "TIDX"
+    private static final int VERSION = 1;
+
+    /**
+     * Indexed state of one file.
+     */
+    private static final class Entry {
+        final long size;
+        final long modified;
+        final String inode;
+        final BlockSignature signature;
+
+        Entry(long size, long modified, String inode, BlockSignature signature) {
+            this.size = size;
+            this.modified = modified;
+            this.inode = inode;
+            this.signature = signature;
+        }
+
+        boolean sameMetadata(Entry other) {
+            return size == other.size && modified == other.modified && inode.equals(other.inode);
+        }
+    }
+
+    /**
+     * Kind of change to a file since the last sync.
+     */
+    public enum Kind { ADDED, MODIFIED, DELETED }
+
+    /**
+     * One changed file.
+     */
+    public static class Change {
+        public final Kind kind;
+        public final String path;
+        public final long size;
+        public final RsyncDelta.Stats delta;  // Null for deleted files
+
+        Change(Kind kind, String path, long size, RsyncDelta.Stats delta) {
+            this.kind = kind;
+            this.path = path;
+            this.size = size;
+            this.delta = delta;
+        }
+    }
+
+    /**
+     * Aggregate result of a sync run.
+     */
+    public static class Manifest {
+        public final List<Change> changes = new ArrayList<>();
+        public final Map<String, String> unreadable = new TreeMap<>(); // Path (directories end in "/") to reason
+        public long scannedFiles;
+        public long unchangedFiles;
+        public long hashedBytes;      // Bytes read from changed files
+        public long literalBytes;     // Bytes sent as literals
+        public long deltaBytes;       // Total size of the deltas
+        public long walkMillis;
+        public long totalMillis;
+
+        public long count(Kind kind) {
+            return changes.stream().filter(c -> c.kind == kind).count();
+        }
+
+        /**
+         * Writes one tab-separated line per change: kind, path, size, copied blocks,
+         * literal bytes, delta bytes; then one per unreadable path: UNREADABLE, path, reason.
+         */
+        public void write(Path file) throws IOException {
+            try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file))) {
+                out.println("# " + this);
+                for (Change change : changes) {
+                    RsyncDelta.Stats delta = change.delta != null ? change.delta : new RsyncDelta.Stats();
+                    out.printf("%s\t%s\t%d\t%d\t%d\t%d%n", change.kind, change.path, change.size,
+                            delta.copiedBlocks, delta.literalBytes, delta.deltaBytes);
+                }
+                for (Map.Entry<String, String> skipped : unreadable.entrySet()) {
+                    out.printf("UNREADABLE\t%s\t%s%n", skipped.getKey(), skipped.getValue());
+                }
+            }
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%,d files scanned, %,d unchanged, %,d added, %,d modified, %,d deleted, "
+                            + "%,d unreadable; %,d bytes hashed, %,d literal bytes, %,d delta bytes; "
+                            + "walk %,d ms, total %,d ms",
+                    scannedFiles, unchangedFiles, count(Kind.ADDED), count(Kind.MODIFIED), count(Kind.DELETED),
+                    unreadable.size(), hashedBytes, literalBytes, deltaBytes, walkMillis, totalMillis);
+        }
+    }
+
+    private final Path indexFile;
+    private final int blockSize;
+    private final BlockSignature.StrongHash strongHash;
+    private final ForkJoinPool pool;
+    private Map<String, Entry> index = new HashMap<>();
+
+    /**
+     * Opens a tree sync, loading its index if it exists.
+     *
+     * @param indexFile  Persistent index (created on the first sync)
+     * @param blockSize  Block size for signatures
+     * @param strongHash Strong hash for signatures
+     * @param pool       Pool for the walk and the per-file work
+     */
+    public TreeSync(Path indexFile, int blockSize, BlockSignature.StrongHash strongHash, ForkJoinPool pool)
+            throws IOException {
+        this.indexFile = indexFile;
+        this.blockSize = blockSize;
+        this.strongHash = strongHash;
+        this.pool = pool;
+        if (Files.exists(indexFile)) {
+            loadIndex();
+        }
+    }
+
+    /**
+     * Syncs a tree against the index: computes deltas for changed files, records the new state.
+     *
+     * @param root     Tree to sync
+     * @param deltaDir If not null, receives one delta per added or modified file, at its
+     *                 relative path plus ".rsd" (patch with {@link RsyncDelta#patch})
+     * @return The change manifest
+     */
+    public Manifest sync(Path root, Path deltaDir) throws IOException {
+        long start = System.nanoTime();
+        Manifest manifest = new Manifest();
+
+        // 1. Walk the tree, keeping metadata only
+        Map<String, Entry> current = new ConcurrentHashMap<>();
+        Map<String, String> unreadable = new ConcurrentHashMap<>();
+        invoke(new Walk(root, "", current, unreadable));
+        manifest.walkMillis = (System.nanoTime() - start) / 1_000_000;
+        manifest.scannedFiles = current.size();
+
+        // 2. Delta and re-sign the files whose metadata changed
+        List<ForkJoinTask<Change>> tasks = new ArrayList<>();
+        Map<String, Entry> updated = new ConcurrentHashMap<>();
+        for (Map.Entry<String, Entry> file : current.entrySet()) {
+            String path = file.getKey();
+            Entry now = file.getValue(), before = index.get(path);
+            if (before != null && before.sameMetadata(now)) {
+                updated.put(path, before);
+                manifest.unchangedFiles++;
+                continue;
+            }
+            tasks.add(pool.submit(() -> processChanged(root, path, now, before, deltaDir, updated, unreadable)));
+        }
+        for (ForkJoinTask<Change> task : tasks) {
+            Change change = ParallelRsync.join(task);
+            if (change == null) {
+                continue; // Vanished before it was indexed, or unreadable
+            }
+            manifest.changes.add(change);
+            if (change.delta == null) {
+                continue; // Deleted between the walk and the read: nothing was hashed
+            }
+            manifest.hashedBytes += change.size;
+            manifest.literalBytes += change.delta.literalBytes;
+            manifest.deltaBytes += change.delta.deltaBytes;
+        }
+        for (Map.Entry<String, Entry> gone : index.entrySet()) {
+            if (current.containsKey(gone.getKey())) {
+                continue;
+            }
+            if (underUnreadable(gone.getKey(), unreadable)) {
+                updated.put(gone.getKey(), gone.getValue()); // Not seen this run, not known to be gone
+            } else {
+                manifest.changes.add(new Change(Kind.DELETED, gone.getKey(), gone.getValue().size, null));
+            }
+        }
+        manifest.unreadable.putAll(unreadable);
+        manifest.changes.sort(Comparator.comparing((Change c) -> c.path));
+
+        // 3. Persist the new state
+        index = new HashMap<>(updated);
+        saveIndex();
+        manifest.totalMillis = (System.nanoTime() - start) / 1_000_000;
+        return manifest;
+    }
+
+    /**
+     * @return The change, or null if the file vanished before it was ever indexed or could not be read
+     */
+    private Change processChanged(Path root, String path, Entry now, Entry before, Path deltaDir,
+                                  Map<String, Entry> updated, Map<String, String> unreadable) throws IOException {
+        Path file = root.resolve(path);
+        BlockSignature base = before != null && before.signature.blockSize() == blockSize
+                && before.signature.strongHash() == strongHash
+                ? before.signature
+                : BlockSignature.allocate(0, blockSize, strongHash);
+
+        Path target = deltaDir != null ? deltaDir.resolve(path + ".rsd") : null;
+        BlockSignature.Builder signer = new BlockSignature.Builder(blockSize, strongHash, now.size);
+        RsyncDelta.Stats stats;
+        SigningStream in;
+        try {
+            in = new SigningStream(Files.newInputStream(file), signer);
+        } catch (NoSuchFileException e) {
+            return vanished(path, before);
+        } catch (IOException e) {
+            return unreadable(path, e, before, updated, unreadable);
+        }
+        try {
+            if (target != null) {
+                Files.createDirectories(target.getParent());
+                try (OutputStream out = Files.newOutputStream(target)) {
+                    stats = RsyncDelta.computeDelta(base, in, out);
+                }
+            } else {
+                stats = RsyncDelta.computeDelta(base, in, new NullOutputStream());
+            }
+        } catch (IOException e) {
+            if (!in.failed) {
+                throw e; // Writing the delta failed: that is not the source file's fault
+            }
+            if (target != null) {
+                Files.deleteIfExists(target);
+            }
+            return unreadable(path, e, before, updated, unreadable);
+        } finally {
+            in.close();
+        }
+        // Indexed under the walk's metadata: if the file changed after the walk, its metadata no
+        // longer matches and the next run picks it up again
+        BlockSignature signature = signer.finish();
+        updated.put(path, new Entry(now.size, now.modified, now.inode, signature));
+        return new Change(before == null ? Kind.ADDED : Kind.MODIFIED, path, signature.fileLength(), stats);
+    }
+
+    private static Change vanished(String path, Entry before) {
+        return before == null ? null : new Change(Kind.DELETED, path, before.size, null);
+    }
+
+    private static Change unreadable(String path, IOException e, Entry before, Map<String, Entry> updated,
+                                     Map<String, String> unreadable) {
+        unreadable.put(path, reason(e));
+        if (before != null) {
+            updated.put(path, before);
+        }
+        return null;
+    }
+
+    /**
+     * @return Whether the path, or a directory above it, could not be read this run
+     */
+    private static boolean underUnreadable(String path, Map<String, String> unreadable) {
+        if (unreadable.isEmpty()) {
+            return false;
+        }
+        for (int slash = path.indexOf('/'); slash >= 0; slash = path.indexOf('/', slash + 1)) {
+            if (unreadable.containsKey(path.substring(0, slash + 1))) {
+                return true;
+            }
+        }
+        return unreadable.containsKey(path);
+    }
+
+    private static String reason(IOException e) {
+        String reason = e instanceof FileSystemException ? ((FileSystemException) e).getReason() : e.getMessage();
+        return e.getClass().getSimpleName() + (reason != null ? ": " + reason : "");
+    }
+
+    /**
+     * Lists one directory: records its files and forks a task per subdirectory. Entries that
+     * vanish meanwhile are skipped; entries that cannot be read are recorded, except the root.
+     */
+    private static final class Walk extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Path directory;
+        private final String prefix;
+        private final Map<String, Entry> files;
+        private final Map<String, String> unreadable;
+
+        Walk(Path directory, String prefix, Map<String, Entry> files, Map<String, String> unreadable) {
+            this.directory = directory;
+            this.prefix = prefix;
+            this.files = files;
+            this.unreadable = unreadable;
+        }
+
+        @Override
+        protected void compute() {
+            List<Walk> subdirectories = new ArrayList<>();
+            try (DirectoryStream<Path> children = Files.newDirectoryStream(directory)) {
+                for (Path child : children) {
+                    String name = prefix + child.getFileName();
+                    BasicFileAttributes attributes;
+                    try {
+                        attributes = Files.readAttributes(child, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                    } catch (NoSuchFileException e) {
+                        continue;
+                    } catch (IOException e) {
+                        unreadable.put(name, reason(e));
+                        continue;
+                    }
+                    if (attributes.isDirectory()) {
+                        subdirectories.add(new Walk(child, name + "/", files, unreadable));
+                    } else if (attributes.isRegularFile()) {
+                        Object key = attributes.fileKey();
+                        files.put(name, new Entry(attributes.size(), nanos(attributes.lastModifiedTime()),
+                                key == null ? "" : key.toString(), null));
+                    }
+                }
+            } catch (IOException | DirectoryIteratorException e) {
+                IOException cause = e instanceof IOException ? (IOException) e : (IOException) e.getCause();
+                if (prefix.isEmpty()) {
+                    throw new UncheckedIOException(cause); // No tree to sync at all
+                }
+                if (!(cause instanceof NoSuchFileException)) {
+                    unreadable.put(prefix, reason(cause));
+                }
+            }
+            invokeAll(subdirectories);
+        }
+    }
+
+    private static long nanos(FileTime time) {
+        return time.to(TimeUnit.NANOSECONDS);
+    }
+
+    private void invoke(ForkJoinTask<?> task) throws IOException {
+        ParallelRsync.join(pool.submit(task));
+    }
+
+    private void loadIndex() throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile), 1 << 16))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a tree sync index: " + indexFile);
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported index version " + version);
+            }
+            int count = in.readInt();
+            Map<String, Entry> loaded = new HashMap<>(count * 2);
+            for (int i = 0; i < count; i++) {
+                String path = in.readUTF();
+                long size = in.readLong(), modified = in.readLong();
+                String inode = in.readUTF();
+                loaded.put(path, new Entry(size, modified, inode, BlockSignature.readFrom(in)));
+            }
+            index = loaded;
+        }
+    }
+
+    private void saveIndex() throws IOException {
+        Path temp = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(index.size());
+            for (Map.Entry<String, Entry> e : index.entrySet()) {
+                Entry entry = e.getValue();
+                out.writeUTF(e.getKey());
+                out.writeLong(entry.size);
+                out.writeLong(entry.modified);
+                out.writeUTF(entry.inode);
+                entry.signature.writeTo(out);
+            }
+        }
+        // Replace atomically: an interrupted run leaves the previous index intact
+        Files.move(temp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @return Number of files in the index
+     */
+    public int indexedFiles() {
+        return index.size();
+    }
+
+    /**
+     * Signs the bytes read through it, and remembers whether reading failed (to tell a bad
+     * source file from a bad delta target).
+     */
+    private static final class SigningStream extends FilterInputStream {
+        private final BlockSignature.Builder signer;
+        boolean failed;
+
+        SigningStream(InputStream in, BlockSignature.Builder signer) {
+            super(in);
+            this.signer = signer;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n;
+            try {
+                n = super.read(b, off, len);
+            } catch (IOException e) {
+                failed = true;
+                throw e;
+            }
+            if (n > 0) {
+                signer.update(b, off, n);
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            // Skipped bytes must be signed too
+            byte[] discard = new byte[(int) Math.min(n, 8192)];
+            long skipped = 0;
+            for (int read; skipped < n && (read = read(discard, 0, (int) Math.min(n - skipped, discard.length))) > 0; ) {
+                skipped += read;
+            }
+            return skipped;
+        }
+    }
+
+    private static final class NullOutputStream extends OutputStream {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    }
+
+    /**
+     * Demo: a first full sync of a generated tree, then a night in which about 1% of the files
+     * change, then a night with no changes, then a night in which changed files are deleted
+     * while the sync runs (checked against the tree afterwards).
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int fileCount = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        Random random = new Random(24);
+        Path root = Files.createTempDirectory("tree");
+        Path work = Files.createTempDirectory("tree-sync");
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < fileCount; i++) {
+            Path directory = root.resolve("d" + (i % 50)).resolve("s" + (i % 997 % 20));
+            Files.createDirectories(directory);
+            byte[] data = new byte[random.nextInt(i % 100 == 0 ? 1 << 20 : 16 << 10)];
+            random.nextBytes(data);
+            files.add(Files.write(directory.resolve("f" + i + ".bin"), data));
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(Math.max(4, Runtime.getRuntime().availableProcessors()));
+        Path indexFile = work.resolve("tree.idx");
+        TreeSync sync = new TreeSync(indexFile, Rsync.BLOCK_SIZE, BlockSignature.StrongHash.MD5, pool);
+        System.out.println("Night 1 (empty index): " + sync.sync(root, null));
+
+        // About 1% of the files change: edits, appends, new files and deletions
+        FileTime later = FileTime.fromMillis(System.currentTimeMillis() + 60_000);
+        for (int i = 0; i < fileCount / 100; i++) {
+            Path file = files.get(random.nextInt(files.size()));
+            if (!Files.exists(file)) {
+                continue;
+            }
+            switch (i % 4) {
+                case 0:
+                    Files.delete(file);
+                    break;
+                case 1:
+                    Files.write(file.resolveSibling("new" + i + ".bin"), new byte[4096]);
+                    break;
+                default:
+                    byte[] data = Files.readAllBytes(file);
+                    if (data.length > 0) {
+                        data[random.nextInt(data.length)] ^= 1;
+                    }
+                    Files.write(file, data);
+                    Files.write(file, new byte[100], StandardOpenOption.APPEND);
+                    Files.setLastModifiedTime(file, later);
+            }
+        }
+
+        // A new process reloads the index from disk
+        sync = new TreeSync(indexFile, Rsync.BLOCK_SIZE, BlockSignature.StrongHash.MD5, pool);
+        Path deltaDir = work.resolve("deltas");
+        Manifest manifest = sync.sync(root, deltaDir);
+        System.out.println("Night 2 (~1% changed): " + manifest);
+        manifest.write(work.resolve("manifest.tsv"));
+        System.out.println("First manifest lines:");
+        try (java.util.stream.Stream<String> lines = Files.lines(work.resolve("manifest.tsv"))) {
+            lines.skip(1).limit(5).forEach(line -> System.out.println("  " + line));
+        }
+
+        sync = new TreeSync(indexFile, Rsync.BLOCK_SIZE, BlockSignature.StrongHash.MD5, pool);
+        System.out.println("Night 3 (no changes):  " + sync.sync(root, null));
+        System.out.printf("Index: %,d files, %,d bytes%n", sync.indexedFiles(), Files.size(indexFile));
+
+        // Changed files deleted while the sync runs: some vanish after the walk listed them
+        FileTime evenLater = FileTime.fromMillis(System.currentTimeMillis() + 120_000);
+        List<Path> doomed = new ArrayList<>();
+        for (Path file : files) {
+            if (doomed.size() < fileCount / 5 && Files.exists(file)) {
+                Files.setLastModifiedTime(file, evenLater);
+                doomed.add(file);
+            }
+        }
+        Thread deleter = new Thread(() -> {
+            for (Path file : doomed) {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        });
+        sync = new TreeSync(indexFile, Rsync.BLOCK_SIZE, BlockSignature.StrongHash.MD5, pool);
+        deleter.start();
+        System.out.println("Night 4 (deleted mid-run): " + sync.sync(root, null));
+        deleter.join();
+        Manifest settled = sync.sync(root, null);
+        long onDisk;
+        try (java.util.stream.Stream<Path> paths = Files.walk(root)) {
+            onDisk = paths.filter(Files::isRegularFile).count();
+        }
+        if (sync.indexedFiles() != onDisk || settled.count(Kind.ADDED) + settled.count(Kind.MODIFIED) != 0) {
+            throw new IllegalStateException("Index out of step with the tree after deletions");
+        }
+
+        pool.shutdown();
+        ChunkStore.deleteTree(root);
+        ChunkStore.deleteTree(work);
+    }
+}
@@ -1,7 +1,10 @@
 package main.java;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * A node in the Trie structure.
@@ -66,6 +69,106 @@ public class Trie {
         return findNode(prefix) != null;
     }
 
+    /**
+     * Visits every word in the Trie (in no particular order).
+     *
+     * @param visitor Receives each word
+     */
+    public void forEachWord(Consumer<String> visitor) {
+        collect(root, new StringBuilder(), visitor);
+    }
+
+    private void collect(TrieNode node, StringBuilder path, Consumer<String> visitor) {
+        if (node.isEndOfWord) {
+            visitor.accept(path.toString());
+        }
+        for (Map.Entry<Character, TrieNode> child : node.children.entrySet()) {
+            path.append(child.getKey().charValue());
+            collect(child.getValue(), path, visitor);
+            path.setLength(path.length() - 1);
+        }
+    }
+
+    /**
+     * Finds the words within a bounded edit distance of a (possibly misspelled) word.
+     * The trie is walked depth-first while one Levenshtein DP row per node is extended by the
+     * node's character; a branch is pruned as soon as its row's minimum exceeds maxEdits,
+     * so only the small part of the trie near the query is visited.
+     *
+     * @param word     The query
+     * @param maxEdits Largest Levenshtein distance to accept
+     * @return Lazy stream of matches with their distances (in no particular order)
+     */
+    public Stream<FuzzyMatch> fuzzySearch(String word, int maxEdits) {
+        Iterator<FuzzyMatch> matches = new Iterator<FuzzyMatch>() {
+            private final Deque<Frame> stack = new ArrayDeque<>();
+            private final StringBuilder path = new StringBuilder();
+            private FuzzyMatch next;
+
+            {
+                stack.push(new Frame(root, 0, '\0', FuzzyMatch.firstRow(word)));
+                next = advance();
+            }
+
+            private FuzzyMatch advance() {
+                while (!stack.isEmpty()) {
+                    Frame frame = stack.pop();
+                    if (frame.depth > 0) {
+                        path.setLength(frame.depth - 1);
+                        path.append(frame.ch);
+                    }
+
+                    // Descend only into children that can still end within maxEdits
+                    for (Map.Entry<Character, TrieNode> child : frame.node.children.entrySet()) {
+                        int[] row = new int[frame.row.length];
+                        char ch = child.getKey();
+                        if (FuzzyMatch.nextRow(frame.row, word, ch, row) <= maxEdits) {
+                            stack.push(new Frame(child.getValue(), frame.depth + 1, ch, row));
+                        }
+                    }
+
+                    int distance = frame.row[word.length()];
+                    if (frame.node.isEndOfWord && distance <= maxEdits) {
+                        return new FuzzyMatch(path.toString(), distance);
+                    }
+                }
+                return null;
+            }
+
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            public FuzzyMatch next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                FuzzyMatch current = next;
+                next = advance();
+                return current;
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(matches,
+                Spliterator.NONNULL | Spliterator.DISTINCT), false);
+    }
+
+    /**
+     * A node waiting to be visited by the fuzzy search, with its DP row.
+     */
+    private static final class Frame {
+        final TrieNode node;
+        final int depth;
+        final char ch;
+        final int[] row;
+
+        Frame(TrieNode node, int depth, char ch, int[] row) {
+            this.node = node;
+            this.depth = depth;
+            this.ch = ch;
+            this.row = row;
+        }
+    }
+
     /**
      * Helper method to traverse the Trie based on input string (word or prefix).
      *
@@ -99,5 +202,7 @@ public class Trie {
         System.out.println("Search 'helix': " + trie.search("helix"));  // false
         System.out.println("StartsWith 'he': " + trie.startsWith("he")); // true
         System.out.println("StartsWith 'ho': " + trie.startsWith("ho")); // false
+        System.out.println("Fuzzy 'helo', 1 edit: " + trie.fuzzySearch("helo", 1)
+                .map(FuzzyMatch::toString).sorted().collect(Collectors.toList())); // [hello (1)]
     }
 }
@@ -0,0 +1,223 @@
+package main.java;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * xxHash64 over byte arrays, byte buffers, char sequences and longs.
+ * Nothing is allocated per call; char sequences are hashed as their UTF-16LE bytes
+ * and longs as their 8 little-endian bytes, so every input form agrees with the byte[] form.
+ */
+public final class XxHash64 {
+
+    private static final long P1 = 0x9E3779B185EBCA87L;
+    private static final long P2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long P3 = 0x165667B19E3779F9L;
+    private static final long P4 = 0x85EBCA77C2B2AE63L;
+    private static final long P5 = 0x27D4EB2F165667C5L;
+
+    private XxHash64() {
+    }
+
+    /**
+     * Hashes a byte range.
+     *
+     * @param data   Input bytes
+     * @param offset Start of the range
+     * @param length Length of the range
+     * @param seed   Hash seed
+     * @return 64-bit hash
+     */
+    public static long hash(byte[] data, int offset, int length, long seed) {
+        int p = offset;
+        int end = offset + length;
+        long h;
+
+        if (length >= 32) {
+            long v1 = seed + P1 + P2;
+            long v2 = seed + P2;
+            long v3 = seed;
+            long v4 = seed - P1;
+            for (int limit = end - 32; p <= limit; p += 32) {
+                v1 = round(v1, Murmur3.getLongLE(data, p));
+                v2 = round(v2, Murmur3.getLongLE(data, p + 8));
+                v3 = round(v3, Murmur3.getLongLE(data, p + 16));
+                v4 = round(v4, Murmur3.getLongLE(data, p + 24));
+            }
+            h = converge(v1, v2, v3, v4);
+        } else {
+            h = seed + P5;
+        }
+        h += length;
+
+        for (; p + 8 <= end; p += 8) {
+            h = mix8(h, Murmur3.getLongLE(data, p));
+        }
+        if (p + 4 <= end) {
+            long k = (data[p] & 0xffL) | (data[p + 1] & 0xffL) << 8
+                    | (data[p + 2] & 0xffL) << 16 | (data[p + 3] & 0xffL) << 24;
+            h = mix4(h, k);
+            p += 4;
+        }
+        for (; p < end; p++) {
+            h = mix1(h, data[p] & 0xff);
+        }
+
+        return avalanche(h);
+    }
+
+    /**
+     * Hashes a buffer's remaining bytes. The buffer's position is not modified.
+     */
+    public static long hash(ByteBuffer data, long seed) {
+        if (data.hasArray()) {
+            return hash(data.array(), data.arrayOffset() + data.position(), data.remaining(), seed);
+        }
+
+        boolean swap = data.order() == ByteOrder.BIG_ENDIAN;
+        int p = data.position();
+        int end = data.limit();
+        int length = end - p;
+        long h;
+
+        if (length >= 32) {
+            long v1 = seed + P1 + P2;
+            long v2 = seed + P2;
+            long v3 = seed;
+            long v4 = seed - P1;
+            for (int limit = end - 32; p <= limit; p += 32) {
+                v1 = round(v1, getLongLE(data, p, swap));
+                v2 = round(v2, getLongLE(data, p + 8, swap));
+                v3 = round(v3, getLongLE(data, p + 16, swap));
+                v4 = round(v4, getLongLE(data, p + 24, swap));
+            }
+            h = converge(v1, v2, v3, v4);
+        } else {
+            h = seed + P5;
+        }
+        h += length;
+
+        for (; p + 8 <= end; p += 8) {
+            h = mix8(h, getLongLE(data, p, swap));
+        }
+        if (p + 4 <= end) {
+            int k = data.getInt(p);
+            h = mix4(h, (swap ? Integer.reverseBytes(k) : k) & 0xffffffffL);
+            p += 4;
+        }
+        for (; p < end; p++) {
+            h = mix1(h, data.get(p) & 0xff);
+        }
+
+        return avalanche(h);
+    }
+
+    /**
+     * Hashes the UTF-16LE bytes of a char sequence.
+     */
+    public static long hash(CharSequence data, long seed) {
+        int p = 0;
+        int end = data.length();
+        long h;
+
+        if (end >= 16) { // 16 chars = one 32-byte stripe
+            long v1 = seed + P1 + P2;
+            long v2 = seed + P2;
+            long v3 = seed;
+            long v4 = seed - P1;
+            for (int limit = end - 16; p <= limit; p += 16) {
+                v1 = round(v1, Murmur3.getLongLE(data, p));
+                v2 = round(v2, Murmur3.getLongLE(data, p + 4));
+                v3 = round(v3, Murmur3.getLongLE(data, p + 8));
+                v4 = round(v4, Murmur3.getLongLE(data, p + 12));
+            }
+            h = converge(v1, v2, v3, v4);
+        } else {
+            h = seed + P5;
+        }
+        h += end * 2L;
+
+        for (; p + 4 <= end; p += 4) {
+            h = mix8(h, Murmur3.getLongLE(data, p));
+        }
+        if (p + 2 <= end) {
+            h = mix4(h, data.charAt(p) | (long) data.charAt(p + 1) << 16);
+            p += 2;
+        }
+        if (p < end) {
+            char c = data.charAt(p);
+            h = mix1(h, c & 0xff);
+            h = mix1(h, c >>> 8);
+        }
+
+        return avalanche(h);
+    }
+
+    /**
+     * Hashes the 8 little-endian bytes of a long.
+     */
+    public static long hash(long data, long seed) {
+        return avalanche(mix8(seed + P5 + 8, data));
+    }
+
+    private static long round(long acc, long input) {
+        acc += input * P2;
+        acc = Long.rotateLeft(acc, 31);
+        return acc * P1;
+    }
+
+    private static long converge(long v1, long v2, long v3, long v4) {
+        long h = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7)
+                + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+        h = (h ^ round(0, v1)) * P1 + P4;
+        h = (h ^ round(0, v2)) * P1 + P4;
+        h = (h ^ round(0, v3)) * P1 + P4;
+        h = (h ^ round(0, v4)) * P1 + P4;
+        return h;
+    }
+
+    private static long mix8(long h, long k) {
+        h ^= round(0, k);
+        return Long.rotateLeft(h, 27) * P1 + P4;
+    }
+
+    private static long mix4(long h, long k) {
+        h ^= k * P1;
+        return Long.rotateLeft(h, 23) * P2 + P3;
+    }
+
+    private static long mix1(long h, int b) {
+        h ^= b * P5;
+        return Long.rotateLeft(h, 11) * P1;
+    }
+
+    private static long avalanche(long h) {
+        h ^= h >>> 33;
+        h *= P2;
+        h ^= h >>> 29;
+        h *= P3;
+        h ^= h >>> 32;
+        return h;
+    }
+
+    private static long getLongLE(ByteBuffer data, int index, boolean swap) {
+        long k = data.getLong(index);
+        return swap ? Long.reverseBytes(k) : k;
+    }
+
+    /**
+     * Demo: hash a few strings and check that all input forms agree.
+     */
+    public static void main(String[] args) {
+        String[] samples = {"", "abc", "Nobody inspects the spammish repetition"};
+        for (String sample : samples) {
+            byte[] utf8 = sample.getBytes(StandardCharsets.UTF_8);
+            System.out.printf("xxHash64(\"%s\") = %016x%n", sample, hash(utf8, 0, utf8.length, 0));
+        }
+
+        String text = "consistent-hashing-key-0042";
+        byte[] utf16 = text.getBytes(StandardCharsets.UTF_16LE);
+        System.out.printf("chars = %016x, utf16le bytes = %016x%n", hash(text, 0), hash(utf16, 0, utf16.length, 0));
+    }
+}